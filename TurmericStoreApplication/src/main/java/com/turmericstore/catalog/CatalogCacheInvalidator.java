@@ -0,0 +1,113 @@
+package com.turmericstore.catalog;
+
+import com.turmericstore.config.CacheKeys;
+import com.turmericstore.model.Category;
+import com.turmericstore.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Invalidates cached catalog DTOs when the replica applies a change, so writes made by
+ * other instances become visible here as soon as their snapshot arrives. Only the scopes
+ * a change can affect are bumped; everything else stays warm.
+ */
+@Component
+public class CatalogCacheInvalidator implements CatalogChangeListener {
+
+    private final CacheManager cacheManager;
+    private final CacheKeys cacheKeys;
+
+    @Autowired
+    public CatalogCacheInvalidator(CacheManager cacheManager, CacheKeys cacheKeys) {
+        this.cacheManager = cacheManager;
+        this.cacheKeys = cacheKeys;
+    }
+
+    @Override
+    public void onProductsChanged(List<CatalogChange<Product>> changes) {
+        Set<String> productScopes = new LinkedHashSet<>();
+        productScopes.add(CacheKeys.ALL_PRODUCTS_SCOPE);
+
+        for (CatalogChange<Product> change : changes) {
+            Product before = change.getBefore();
+            Product after = change.getAfter();
+
+            invalidate("product-details", CacheKeys.productScope(change.getId()));
+
+            // The product leaves its old category list and joins the new one
+            if (before != null && before.getCategoryId() != null) {
+                productScopes.add(CacheKeys.categoryProductsScope(before.getCategoryId()));
+            }
+            if (after != null && after.getCategoryId() != null) {
+                productScopes.add(CacheKeys.categoryProductsScope(after.getCategoryId()));
+            }
+
+            if (isFeatured(before) || isFeatured(after)) {
+                productScopes.add(CacheKeys.FEATURED_PRODUCTS_SCOPE);
+            }
+        }
+
+        productScopes.forEach(scope -> invalidate("products", scope));
+    }
+
+    @Override
+    public void onCategoriesChanged(List<CatalogChange<Category>> changes) {
+        Set<String> categoryScopes = new LinkedHashSet<>();
+        categoryScopes.add(CacheKeys.ALL_CATEGORIES_SCOPE);
+        categoryScopes.add(CacheKeys.ACTIVE_CATEGORIES_SCOPE);
+        boolean namesChanged = false;
+
+        for (CatalogChange<Category> change : changes) {
+            Category before = change.getBefore();
+            Category after = change.getAfter();
+
+            categoryScopes.add(CacheKeys.categoryScope(change.getId()));
+            if (before != null) {
+                categoryScopes.add(CacheKeys.parentCategoriesScope(before.getParentId()));
+            }
+            if (after != null) {
+                categoryScopes.add(CacheKeys.parentCategoriesScope(after.getParentId()));
+            }
+
+            // Product DTOs carry the category name, so only a rename reaches the product caches
+            if (before != null && !Objects.equals(before.getName(), after != null ? after.getName() : null)) {
+                invalidate("products", CacheKeys.categoryProductsScope(change.getId()));
+                namesChanged = true;
+            }
+        }
+
+        categoryScopes.forEach(scope -> invalidate("categories", scope));
+
+        if (namesChanged) {
+            invalidate("products", CacheKeys.ALL_PRODUCTS_SCOPE);
+            invalidate("products", CacheKeys.FEATURED_PRODUCTS_SCOPE);
+            // Renames are rare admin edits; not worth tracking which details belong to the category
+            Cache details = cacheManager.getCache("product-details");
+            if (details != null) {
+                details.clear();
+            }
+        }
+    }
+
+    // Helper methods
+    private void invalidate(String cacheName, String scope) {
+        String staleKey = cacheKeys.bump(scope);
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(staleKey);
+        }
+    }
+
+    private static boolean isFeatured(Product product) {
+        return product != null
+                && Boolean.TRUE.equals(product.getFeatured())
+                && Boolean.TRUE.equals(product.getActive());
+    }
+}
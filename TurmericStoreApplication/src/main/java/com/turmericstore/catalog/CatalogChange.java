@@ -0,0 +1,34 @@
+package com.turmericstore.catalog;
+
+/**
+ * One document change applied to the catalog replica. {@code before} is null for
+ * a newly seen document and {@code after} is null for a removed one.
+ */
+public final class CatalogChange<T> {
+
+    private final String id;
+    private final T before;
+    private final T after;
+
+    public CatalogChange(String id, T before, T after) {
+        this.id = id;
+        this.before = before;
+        this.after = after;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public T getBefore() {
+        return before;
+    }
+
+    public T getAfter() {
+        return after;
+    }
+
+    public boolean isRemoval() {
+        return after == null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.turmericstore.catalog;
+
+import com.turmericstore.model.Category;
+import com.turmericstore.model.Product;
+
+import java.util.List;
+
+/**
+ * Implemented by beans that derive state from the catalog (indexes, caches).
+ * {@link CatalogReplica} calls every listener bean with each batch of changes,
+ * whether the change was written by this instance or arrived from another one.
+ */
+public interface CatalogChangeListener {
+
+    default void onProductsChanged(List<CatalogChange<Product>> changes) {
+    }
+
+    default void onCategoriesChanged(List<CatalogChange<Category>> changes) {
+    }
+}
@@ -0,0 +1,433 @@
+package com.turmericstore.catalog;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.turmericstore.model.Category;
+import com.turmericstore.model.Product;
+import com.turmericstore.repository.CategoryRepository;
+import com.turmericstore.repository.ProductRepository;
+import com.turmericstore.util.AppConstants;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Local, read-only copy of the products and categories collections kept current by
+ * Firestore snapshot listeners. Each snapshot is applied to a private copy of the
+ * data which is then published as a new immutable view, so readers never lock and
+ * never see a half-applied change. Reads fall back to the repositories, without
+ * waiting, until the first snapshot has arrived.
+ */
+@Component
+public class CatalogReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogReplica.class);
+
+    private static final long RESUBSCRIBE_DELAY_SECONDS = 5;
+
+    private final Firestore firestore;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final List<CatalogChangeListener> listeners;
+    private final CatalogVersion catalogVersion;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-replica");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object productLock = new Object();
+    private final Object categoryLock = new Object();
+    private final CountDownLatch productsSynced = new CountDownLatch(1);
+    private final CountDownLatch categoriesSynced = new CountDownLatch(1);
+
+    private volatile ProductView productView = new ProductView(Map.of());
+    private volatile CategoryView categoryView = new CategoryView(Map.of());
+    private volatile ListenerRegistration productRegistration;
+    private volatile ListenerRegistration categoryRegistration;
+    private volatile boolean stopped;
+
+    @Autowired
+    public CatalogReplica(Firestore firestore, ProductRepository productRepository,
+                          CategoryRepository categoryRepository, List<CatalogChangeListener> listeners,
+                          CatalogVersion catalogVersion) {
+        this.firestore = firestore;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.listeners = listeners;
+        this.catalogVersion = catalogVersion;
+    }
+
+    @PostConstruct
+    public void start() {
+        subscribeProducts();
+        subscribeCategories();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        if (productRegistration != null) {
+            productRegistration.remove();
+        }
+        if (categoryRegistration != null) {
+            categoryRegistration.remove();
+        }
+        scheduler.shutdownNow();
+    }
+
+    // Product reads
+    public List<Product> findAllProducts() throws ExecutionException, InterruptedException {
+        if (!isSynced(productsSynced)) {
+            return productRepository.findAll();
+        }
+        return productView.all;
+    }
+
+    public Optional<Product> findProductById(String id) throws ExecutionException, InterruptedException {
+        if (!isSynced(productsSynced)) {
+            return productRepository.findById(id);
+        }
+        return Optional.ofNullable(productView.byId.get(id));
+    }
+
+    public List<Product> findProductsByCategoryId(String categoryId) throws ExecutionException, InterruptedException {
+        if (!isSynced(productsSynced)) {
+            return productRepository.findByCategoryId(categoryId);
+        }
+        return productView.byCategory.getOrDefault(categoryId, List.of());
+    }
+
+    public List<Product> findFeaturedProducts() throws ExecutionException, InterruptedException {
+        if (!isSynced(productsSynced)) {
+            return productRepository.findByFeatured(true);
+        }
+        return productView.featured;
+    }
+
+    public List<Product> findProductsByIds(List<String> ids) throws ExecutionException, InterruptedException {
+        if (!isSynced(productsSynced)) {
+            return productRepository.findByIds(ids);
+        }
+
+        Map<String, Product> byId = productView.byId;
+        List<Product> products = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // Category reads
+    public List<Category> findAllCategories() throws ExecutionException, InterruptedException {
+        if (!isSynced(categoriesSynced)) {
+            return categoryRepository.findAll();
+        }
+        return categoryView.all;
+    }
+
+    public List<Category> findActiveCategories() throws ExecutionException, InterruptedException {
+        if (!isSynced(categoriesSynced)) {
+            return categoryRepository.findAllActive();
+        }
+        return categoryView.active;
+    }
+
+    public Optional<Category> findCategoryById(String id) throws ExecutionException, InterruptedException {
+        if (!isSynced(categoriesSynced)) {
+            return categoryRepository.findById(id);
+        }
+        return Optional.ofNullable(categoryView.byId.get(id));
+    }
+
+    public List<Category> findCategoriesByIds(Collection<String> ids) throws ExecutionException, InterruptedException {
+        if (!isSynced(categoriesSynced)) {
+            return categoryRepository.findByIds(ids);
+        }
+
+        Map<String, Category> byId = categoryView.byId;
+        List<Category> categories = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Category category = byId.get(id);
+            if (category != null) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    public List<Category> findCategoriesByParentId(String parentId) throws ExecutionException, InterruptedException {
+        if (!isSynced(categoriesSynced)) {
+            return categoryRepository.findByParentId(parentId);
+        }
+        return categoryView.byParent.getOrDefault(parentId, List.of());
+    }
+
+    // Local writes are applied immediately so this instance reads its own writes
+    // without waiting for the listener round trip; the echoed snapshot is a no-op.
+    // A newer version that another instance wrote and whose snapshot arrived first is kept.
+    public void applyProduct(Product product) {
+        synchronized (productLock) {
+            if (isOlder(product.getUpdatedAt(), productView.byId.get(product.getId()), Product::getUpdatedAt)) {
+                return;
+            }
+            Map<String, Product> documents = new HashMap<>(productView.byId);
+            List<CatalogChange<Product>> changes = new ArrayList<>();
+            upsert(documents, product.getId(), product, changes);
+            publishProducts(documents, changes);
+        }
+    }
+
+    public void removeProduct(String id) {
+        synchronized (productLock) {
+            Map<String, Product> documents = new HashMap<>(productView.byId);
+            List<CatalogChange<Product>> changes = new ArrayList<>();
+            remove(documents, id, changes);
+            publishProducts(documents, changes);
+        }
+    }
+
+    public void applyCategory(Category category) {
+        synchronized (categoryLock) {
+            if (isOlder(category.getUpdatedAt(), categoryView.byId.get(category.getId()), Category::getUpdatedAt)) {
+                return;
+            }
+            Map<String, Category> documents = new HashMap<>(categoryView.byId);
+            List<CatalogChange<Category>> changes = new ArrayList<>();
+            upsert(documents, category.getId(), category, changes);
+            publishCategories(documents, changes);
+        }
+    }
+
+    public void removeCategory(String id) {
+        synchronized (categoryLock) {
+            Map<String, Category> documents = new HashMap<>(categoryView.byId);
+            List<CatalogChange<Category>> changes = new ArrayList<>();
+            remove(documents, id, changes);
+            publishCategories(documents, changes);
+        }
+    }
+
+    // Snapshot handling
+    private void subscribeProducts() {
+        subscribe(AppConstants.COLLECTION_PRODUCTS, this::onProductSnapshot,
+                registration -> productRegistration = registration, this::subscribeProducts);
+    }
+
+    private void subscribeCategories() {
+        subscribe(AppConstants.COLLECTION_CATEGORIES, this::onCategorySnapshot,
+                registration -> categoryRegistration = registration, this::subscribeCategories);
+    }
+
+    private void subscribe(String collection, BiConsumer<QuerySnapshot, Boolean> handler,
+                           Consumer<ListenerRegistration> holder, Runnable resubscribe) {
+        if (stopped) {
+            return;
+        }
+
+        boolean[] initial = {true};
+        holder.accept(firestore.collection(collection).addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                // The listener is terminated after an error; keep serving the last view and retry
+                log.warn("Snapshot listener for '{}' failed, resubscribing in {}s", collection,
+                        RESUBSCRIBE_DELAY_SECONDS, error);
+                if (!stopped) {
+                    scheduler.schedule(resubscribe, RESUBSCRIBE_DELAY_SECONDS, TimeUnit.SECONDS);
+                }
+                return;
+            }
+
+            handler.accept(snapshot, initial[0]);
+            initial[0] = false;
+        }));
+    }
+
+    private void onProductSnapshot(QuerySnapshot snapshot, boolean initial) {
+        synchronized (productLock) {
+            Map<String, Product> documents = new HashMap<>(productView.byId);
+            List<CatalogChange<Product>> changes = initial
+                    ? resync(documents, snapshot, Product.class)
+                    : applyDocumentChanges(documents, snapshot, Product.class);
+            publishProducts(documents, changes);
+        }
+        productsSynced.countDown();
+    }
+
+    private void onCategorySnapshot(QuerySnapshot snapshot, boolean initial) {
+        synchronized (categoryLock) {
+            Map<String, Category> documents = new HashMap<>(categoryView.byId);
+            List<CatalogChange<Category>> changes = initial
+                    ? resync(documents, snapshot, Category.class)
+                    : applyDocumentChanges(documents, snapshot, Category.class);
+            publishCategories(documents, changes);
+        }
+        categoriesSynced.countDown();
+    }
+
+    private void publishProducts(Map<String, Product> documents, List<CatalogChange<Product>> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        productView = new ProductView(documents);
+        for (CatalogChangeListener listener : listeners) {
+            try {
+                listener.onProductsChanged(changes);
+            } catch (RuntimeException e) {
+                log.error("Catalog listener {} failed on product changes", listener.getClass().getSimpleName(), e);
+            }
+        }
+        // Bumped last, so a reader that sees the new version also sees every derived index updated
+        catalogVersion.productsChanged();
+    }
+
+    private void publishCategories(Map<String, Category> documents, List<CatalogChange<Category>> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        categoryView = new CategoryView(documents);
+        for (CatalogChangeListener listener : listeners) {
+            try {
+                listener.onCategoriesChanged(changes);
+            } catch (RuntimeException e) {
+                log.error("Catalog listener {} failed on category changes", listener.getClass().getSimpleName(), e);
+            }
+        }
+        catalogVersion.categoriesChanged();
+    }
+
+    // The first snapshot of a (re)subscription lists every document; anything we hold
+    // that it does not contain was deleted while we were not listening.
+    private static <T> List<CatalogChange<T>> resync(Map<String, T> documents, QuerySnapshot snapshot, Class<T> type) {
+        List<CatalogChange<T>> changes = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (QueryDocumentSnapshot document : snapshot.getDocuments()) {
+            seen.add(document.getId());
+            upsert(documents, document.getId(), document.toObject(type), changes);
+        }
+        for (String id : new ArrayList<>(documents.keySet())) {
+            if (!seen.contains(id)) {
+                remove(documents, id, changes);
+            }
+        }
+        return changes;
+    }
+
+    private static <T> List<CatalogChange<T>> applyDocumentChanges(Map<String, T> documents, QuerySnapshot snapshot,
+                                                                   Class<T> type) {
+        List<CatalogChange<T>> changes = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            String id = change.getDocument().getId();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                remove(documents, id, changes);
+            } else {
+                upsert(documents, id, change.getDocument().toObject(type), changes);
+            }
+        }
+        return changes;
+    }
+
+    private static <T> void upsert(Map<String, T> documents, String id, T value, List<CatalogChange<T>> changes) {
+        T before = documents.put(id, value);
+        if (!value.equals(before)) {
+            changes.add(new CatalogChange<>(id, before, value));
+        }
+    }
+
+    private static <T> void remove(Map<String, T> documents, String id, List<CatalogChange<T>> changes) {
+        T before = documents.remove(id);
+        if (before != null) {
+            changes.add(new CatalogChange<>(id, before, null));
+        }
+    }
+
+    private static <T> boolean isOlder(Long updatedAt, T current, Function<T, Long> currentUpdatedAt) {
+        Long held = current != null ? currentUpdatedAt.apply(current) : null;
+        return updatedAt != null && held != null && updatedAt < held;
+    }
+
+    // Never waits: until the listener has delivered a snapshot, reads go straight to Firestore
+    private static boolean isSynced(CountDownLatch latch) {
+        return latch.getCount() == 0;
+    }
+
+    // Immutable read views, rebuilt whenever a batch of changes is applied
+    private static final class ProductView {
+        private final Map<String, Product> byId;
+        private final List<Product> all;
+        private final Map<String, List<Product>> byCategory;
+        private final List<Product> featured;
+
+        private ProductView(Map<String, Product> documents) {
+            this.byId = Collections.unmodifiableMap(documents);
+            this.all = documents.values().stream()
+                    .sorted(Comparator.comparing(Product::getId))
+                    .collect(Collectors.toUnmodifiableList());
+            this.byCategory = all.stream()
+                    .filter(product -> product.getCategoryId() != null)
+                    .collect(Collectors.collectingAndThen(
+                            Collectors.groupingBy(Product::getCategoryId, Collectors.toUnmodifiableList()),
+                            Collections::unmodifiableMap));
+            this.featured = all.stream()
+                    .filter(product -> Boolean.TRUE.equals(product.getFeatured())
+                            && Boolean.TRUE.equals(product.getActive()))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
+    private static final class CategoryView {
+        private final Map<String, Category> byId;
+        private final List<Category> all;
+        private final List<Category> active;
+        private final Map<String, List<Category>> byParent;
+
+        private CategoryView(Map<String, Category> documents) {
+            this.byId = Collections.unmodifiableMap(documents);
+            this.all = documents.values().stream()
+                    .sorted(Comparator.comparing(Category::getId))
+                    .collect(Collectors.toUnmodifiableList());
+            this.active = all.stream()
+                    .filter(category -> Boolean.TRUE.equals(category.getActive()))
+                    .sorted(Comparator.comparing(Category::getDisplayOrder,
+                            Comparator.nullsLast(Comparator.naturalOrder())))
+                    .collect(Collectors.toUnmodifiableList());
+
+            // Root categories are grouped under the null key, matching findByParentId(null)
+            Map<String, List<Category>> parents = new HashMap<>();
+            for (Category category : all) {
+                parents.computeIfAbsent(category.getParentId(), key -> new ArrayList<>()).add(category);
+            }
+            parents.replaceAll((parentId, children) -> Collections.unmodifiableList(children));
+            this.byParent = Collections.unmodifiableMap(parents);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.turmericstore.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Catalog response bodies kept as ready-to-send bytes: the JSON and its gzip variant,
+ * stamped with the local catalog version they were built from. Repeat requests skip Jackson
+ * and deflate entirely; a version bump makes the next request rebuild the entry.
+ * ETags are a hash of the JSON itself, so every instance behind the load balancer gives
+ * the same tag to the same body and a different one to anything else. For cached bodies
+ * the tag is stored with the entry, so clients holding the current copy get a 304 without
+ * the service layer being called.
+ */
+@Component
+public class CatalogResponseCache {
+
+    private static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+    private final CatalogVersion catalogVersion;
+
+    // Bounded so arbitrary ids in request paths cannot grow it without limit. Entries are futures,
+    // so concurrent requests for a key share one load without it running inside the map
+    private final AsyncCache<String, CachedResponse> responses = Caffeine.newBuilder()
+            .maximumSize(256)
+            .buildAsync();
+
+    @Autowired
+    public CatalogResponseCache(ObjectMapper objectMapper, CatalogVersion catalogVersion) {
+        this.objectMapper = objectMapper;
+        this.catalogVersion = catalogVersion;
+    }
+
+    public ResponseEntity<byte[]> products(String key, WebRequest request, Supplier<?> body) {
+        // Product responses also embed category names, so they are rebuilt when either changes
+        return respond("products:" + key, catalogVersion.products() + "." + catalogVersion.categories(), request, body);
+    }
+
+    public ResponseEntity<byte[]> categories(String key, WebRequest request, Supplier<?> body) {
+        return respond("categories:" + key, String.valueOf(catalogVersion.categories()), request, body);
+    }
+
+    /**
+     * Conditional GET for product reads that are not worth keeping (single products, search
+     * results, pages). The body is loaded and serialized once; the tag is hashed from those
+     * bytes, which are then sent as they are, or a client holding them gets a 304 instead.
+     * Returns null once a 304 has been prepared for the client.
+     */
+    public ResponseEntity<byte[]> products(WebRequest request, Supplier<?> body) {
+        byte[] json = serialize(body.get());
+        String etag = etag(tag(newDigest().digest(json)), false);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(json);
+    }
+
+    // Helper methods
+    private ResponseEntity<byte[]> respond(String key, String version, WebRequest request, Supplier<?> body) {
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        // The version is read before loading, so data that changes mid-load is stored under the older version
+        CachedResponse response = load(key, version, body);
+
+        String etag = etag(response.tag, gzip);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            // Already encoded, so server compression leaves it alone
+            return builder.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(response.gzip);
+        }
+        return builder.body(response.json);
+    }
+
+    /**
+     * The entry for the key at this version, loading it if missing or older. The map only ever
+     * swaps in a pending future; the load itself runs on the caller's thread outside the map,
+     * and requests arriving meanwhile wait on that future instead of loading again.
+     */
+    private CachedResponse load(String key, String version, Supplier<?> body) {
+        CompletableFuture<CachedResponse> cached = responses.getIfPresent(key);
+        if (cached != null && cached.isDone() && !isStale(cached, version)) {
+            return cached.join();
+        }
+        while (true) {
+            CompletableFuture<CachedResponse> pending = new CompletableFuture<>();
+            CompletableFuture<CachedResponse> current = responses.asMap().compute(key, (k, existing) ->
+                    existing == null || isStale(existing, version) ? pending : existing);
+            if (current == pending) {
+                try {
+                    pending.complete(build(version, body.get()));
+                } catch (RuntimeException e) {
+                    // Requests waiting on this load try again themselves, e.g. to get their own 404
+                    responses.asMap().remove(key, pending);
+                    pending.complete(null);
+                    throw e;
+                }
+            }
+
+            CachedResponse response;
+            try {
+                response = current.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+            if (response != null && response.version.equals(version)) {
+                return response;
+            }
+            // The joined load failed, or was for an older version; the loop replaces it
+        }
+    }
+
+    // A load still running is shared whatever its version; the caller checks the version once it is done
+    private static boolean isStale(CompletableFuture<CachedResponse> entry, String version) {
+        if (!entry.isDone()) {
+            return false;
+        }
+        CachedResponse response = entry.isCompletedExceptionally() ? null : entry.join();
+        return response == null || !response.version.equals(version);
+    }
+
+    // Strong validators must differ per encoding, since the bytes differ
+    private static String etag(String tag, boolean gzip) {
+        return "\"" + tag + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    private CachedResponse build(String version, Object body) {
+        byte[] json = serialize(body);
+        return new CachedResponse(version, tag(newDigest().digest(json)), json, gzip(json));
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize catalog response", e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // 128 bits of the digest are plenty to tell two bodies apart
+    private static String tag(byte[] digest) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase(GZIP)) {
+                continue;
+            }
+            // "gzip;q=0" explicitly refuses gzip
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class CachedResponse {
+        private final String version;
+        private final String tag;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private CachedResponse(String version, String tag, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.tag = tag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.turmericstore.catalog;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic versions of this instance's product and category data, bumped by
+ * {@link CatalogReplica} after every applied change once all listeners have run.
+ * Only local caches are keyed on them; other instances count differently, so they
+ * never go into anything sent to clients.
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong categories = new AtomicLong();
+
+    public long products() {
+        return products.get();
+    }
+
+    public long categories() {
+        return categories.get();
+    }
+
+    /**
+     * Also called when something other than the data changes product responses,
+     * e.g. a reloaded synonym dictionary changing search results.
+     */
+    public void productsChanged() {
+        products.incrementAndGet();
+    }
+
+    void categoriesChanged() {
+        categories.incrementAndGet();
+        // Product responses carry category names
+        products.incrementAndGet();
+    }
+}
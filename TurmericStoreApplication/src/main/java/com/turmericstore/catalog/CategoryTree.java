@@ -0,0 +1,167 @@
+package com.turmericstore.catalog;
+
+import com.turmericstore.model.Category;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Materialized category hierarchy. Every category gets an Euler-tour interval (its preorder
+ * position and the last position inside its subtree), so ancestor checks are two integer
+ * comparisons and a subtree is one contiguous slice of the preorder array.
+ * Parent links are maintained per change; the tour is renumbered only when a link moves.
+ */
+@Component
+public class CategoryTree implements CatalogChangeListener {
+
+    private final Object lock = new Object();
+    private final Map<String, String> parents = new HashMap<>();
+    private volatile TreeView view = new TreeView(Map.of());
+
+    @Override
+    public void onCategoriesChanged(List<CatalogChange<Category>> changes) {
+        synchronized (lock) {
+            boolean linksChanged = false;
+            for (CatalogChange<Category> change : changes) {
+                String id = change.getId();
+                if (change.isRemoval()) {
+                    linksChanged |= parents.containsKey(id);
+                    parents.remove(id);
+                } else {
+                    String parentId = change.getAfter().getParentId();
+                    if (!parents.containsKey(id) || !Objects.equals(parents.get(id), parentId)) {
+                        parents.put(id, parentId);
+                        linksChanged = true;
+                    }
+                }
+            }
+            // Renames and other edits leave the shape alone
+            if (linksChanged) {
+                view = new TreeView(parents);
+            }
+        }
+    }
+
+    /**
+     * True when ancestorId is descendantId itself or any category above it.
+     */
+    public boolean isAncestorOrSelf(String ancestorId, String descendantId) {
+        TreeView current = view;
+        Integer ancestor = current.index.get(ancestorId);
+        Integer descendant = current.index.get(descendantId);
+        if (ancestor == null || descendant == null) {
+            return false;
+        }
+        return current.tin[ancestor] <= current.tin[descendant] && current.tin[descendant] <= current.tout[ancestor];
+    }
+
+    /**
+     * The category followed by all of its descendants in preorder. A category the tree
+     * does not know yet is returned on its own.
+     */
+    public List<String> getSubtreeIds(String categoryId) {
+        TreeView current = view;
+        Integer node = current.index.get(categoryId);
+        if (node == null) {
+            return List.of(categoryId);
+        }
+
+        List<String> ids = new ArrayList<>(current.tout[node] - current.tin[node] + 1);
+        for (int position = current.tin[node]; position <= current.tout[node]; position++) {
+            ids.add(current.ids[current.order[position]]);
+        }
+        return ids;
+    }
+
+    private static final class TreeView {
+        private final String[] ids;
+        private final Map<String, Integer> index;
+        private final int[] parent;
+        private final int[][] children;
+        private final int[] order;
+        private final int[] tin;
+        private final int[] tout;
+
+        private TreeView(Map<String, String> parents) {
+            int size = parents.size();
+            ids = parents.keySet().toArray(new String[0]);
+            Arrays.sort(ids);
+            index = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                index.put(ids[i], i);
+            }
+
+            // A parent that does not exist makes the category a root
+            parent = new int[size];
+            int[] childCounts = new int[size];
+            for (int i = 0; i < size; i++) {
+                Integer p = index.get(parents.get(ids[i]));
+                parent[i] = p != null && p != i ? p : -1;
+                if (parent[i] >= 0) {
+                    childCounts[parent[i]]++;
+                }
+            }
+            children = new int[size][];
+            for (int i = 0; i < size; i++) {
+                children[i] = new int[childCounts[i]];
+                childCounts[i] = 0;
+            }
+            for (int i = 0; i < size; i++) {
+                if (parent[i] >= 0) {
+                    children[parent[i]][childCounts[parent[i]]++] = i;
+                }
+            }
+
+            order = new int[size];
+            tin = new int[size];
+            tout = new int[size];
+            boolean[] visited = new boolean[size];
+            int[] position = {0};
+            for (int i = 0; i < size; i++) {
+                if (parent[i] < 0) {
+                    tour(i, visited, position);
+                }
+            }
+            // Whatever is left sits on a parent cycle; cut the cycle where we first meet it
+            for (int i = 0; i < size; i++) {
+                if (!visited[i]) {
+                    tour(i, visited, position);
+                }
+            }
+        }
+
+        // Iterative preorder walk, so a deep hierarchy cannot overflow the stack
+        private void tour(int root, boolean[] visited, int[] position) {
+            int[] stack = new int[ids.length];
+            int[] nextChild = new int[ids.length];
+            int depth = 0;
+            stack[0] = root;
+            visited[root] = true;
+            tin[root] = position[0];
+            order[position[0]++] = root;
+
+            while (depth >= 0) {
+                int node = stack[depth];
+                if (nextChild[depth] < children[node].length) {
+                    int child = children[node][nextChild[depth]++];
+                    if (visited[child]) {
+                        continue;
+                    }
+                    visited[child] = true;
+                    tin[child] = position[0];
+                    order[position[0]++] = child;
+                    stack[++depth] = child;
+                    nextChild[depth] = 0;
+                } else {
+                    tout[node] = position[0] - 1;
+                    depth--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.turmericstore.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed bitmap of non-negative ints in the Roaring layout. Values are split
+ * into chunks by their high 16 bits; a chunk holds either a sorted array of its low 16 bits
+ * (up to 4096 values) or a 65536-bit bitmap, whichever is smaller. Intersections and counts
+ * work chunk by chunk and skip chunks that only one side has.
+ */
+final class CompactBitmap {
+
+    static final CompactBitmap EMPTY = new CompactBitmap(new char[0], new Object[0], 0);
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private final char[] keys;
+    // char[] (array chunk) or long[] (bitmap chunk), parallel to keys
+    private final Object[] containers;
+    private final int cardinality;
+
+    private CompactBitmap(char[] keys, Object[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Builds a bitmap from the first {@code length} values, which must be ascending and distinct.
+     */
+    static CompactBitmap of(int[] values, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+
+        char[] keys = new char[Math.min(length, 1 << 16)];
+        Object[] containers = new Object[keys.length];
+        int chunks = 0;
+        int start = 0;
+        while (start < length) {
+            int high = values[start] >>> 16;
+            int end = start;
+            while (end < length && values[end] >>> 16 == high) {
+                end++;
+            }
+
+            if (end - start <= ARRAY_LIMIT) {
+                char[] array = new char[end - start];
+                for (int i = start; i < end; i++) {
+                    array[i - start] = (char) values[i];
+                }
+                containers[chunks] = array;
+            } else {
+                long[] bits = new long[BITMAP_WORDS];
+                for (int i = start; i < end; i++) {
+                    int low = values[i] & 0xFFFF;
+                    bits[low >>> 6] |= 1L << low;
+                }
+                containers[chunks] = bits;
+            }
+            keys[chunks++] = (char) high;
+            start = end;
+        }
+        return new CompactBitmap(Arrays.copyOf(keys, chunks), Arrays.copyOf(containers, chunks), length);
+    }
+
+    /**
+     * Builds a bitmap from a plain bitset, where bit i of words[i / 64] stands for value i.
+     */
+    static CompactBitmap fromWords(long[] words) {
+        int chunkCount = (words.length + BITMAP_WORDS - 1) / BITMAP_WORDS;
+        char[] keys = new char[chunkCount];
+        Object[] containers = new Object[chunkCount];
+        int chunks = 0;
+        int cardinality = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int from = chunk * BITMAP_WORDS;
+            long[] bits = Arrays.copyOfRange(words, from, from + BITMAP_WORDS);
+            int count = bitCount(bits);
+            if (count == 0) {
+                continue;
+            }
+            keys[chunks] = (char) chunk;
+            containers[chunks++] = count <= ARRAY_LIMIT ? toArray(bits, count) : bits;
+            cardinality += count;
+        }
+        return new CompactBitmap(Arrays.copyOf(keys, chunks), Arrays.copyOf(containers, chunks), cardinality);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (containers[index] instanceof char[] array) {
+            return Arrays.binarySearch(array, low) >= 0;
+        }
+        long[] bits = (long[]) containers[index];
+        return (bits[low >>> 6] & (1L << low)) != 0;
+    }
+
+    CompactBitmap and(CompactBitmap other) {
+        char[] resultKeys = new char[Math.min(keys.length, other.keys.length)];
+        Object[] resultContainers = new Object[resultKeys.length];
+        int chunks = 0;
+        int resultCardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object container = and(containers[i], other.containers[j]);
+                int size = size(container);
+                if (size > 0) {
+                    resultKeys[chunks] = keys[i];
+                    resultContainers[chunks++] = container;
+                    resultCardinality += size;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new CompactBitmap(Arrays.copyOf(resultKeys, chunks), Arrays.copyOf(resultContainers, chunks), resultCardinality);
+    }
+
+    /**
+     * Size of the intersection, without building it.
+     */
+    int andCardinality(CompactBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += andCardinality(containers[i], other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    CompactBitmap or(CompactBitmap other) {
+        char[] resultKeys = new char[keys.length + other.keys.length];
+        Object[] resultContainers = new Object[resultKeys.length];
+        int chunks = 0;
+        int resultCardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            Object container;
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                // Chunks are never modified, so one-sided chunks are shared rather than copied
+                resultKeys[chunks] = keys[i];
+                container = containers[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                resultKeys[chunks] = other.keys[j];
+                container = other.containers[j++];
+            } else {
+                resultKeys[chunks] = keys[i];
+                container = or(containers[i++], other.containers[j++]);
+            }
+            resultContainers[chunks++] = container;
+            resultCardinality += size(container);
+        }
+        return new CompactBitmap(Arrays.copyOf(resultKeys, chunks), Arrays.copyOf(resultContainers, chunks), resultCardinality);
+    }
+
+    // Chunk helpers
+    private static Object and(Object a, Object b) {
+        if (a instanceof char[] left) {
+            return b instanceof char[] right ? intersect(left, right) : filter(left, (long[]) b);
+        }
+        if (b instanceof char[] right) {
+            return filter(right, (long[]) a);
+        }
+        long[] left = (long[]) a;
+        long[] right = (long[]) b;
+        long[] bits = new long[BITMAP_WORDS];
+        int count = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            bits[w] = left[w] & right[w];
+            count += Long.bitCount(bits[w]);
+        }
+        return count <= ARRAY_LIMIT ? toArray(bits, count) : bits;
+    }
+
+    private static int andCardinality(Object a, Object b) {
+        if (a instanceof char[] left) {
+            return b instanceof char[] right ? intersectCount(left, right) : filterCount(left, (long[]) b);
+        }
+        if (b instanceof char[] right) {
+            return filterCount(right, (long[]) a);
+        }
+        long[] left = (long[]) a;
+        long[] right = (long[]) b;
+        int count = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            count += Long.bitCount(left[w] & right[w]);
+        }
+        return count;
+    }
+
+    private static Object or(Object a, Object b) {
+        if (a instanceof char[] left && b instanceof char[] right) {
+            char[] union = new char[left.length + right.length];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < left.length || j < right.length) {
+                if (j == right.length || (i < left.length && left[i] < right[j])) {
+                    union[n++] = left[i++];
+                } else if (i == left.length || left[i] > right[j]) {
+                    union[n++] = right[j++];
+                } else {
+                    union[n++] = left[i++];
+                    j++;
+                }
+            }
+            if (n <= ARRAY_LIMIT) {
+                return Arrays.copyOf(union, n);
+            }
+            long[] bits = new long[BITMAP_WORDS];
+            set(bits, union, n);
+            return bits;
+        }
+        // A bitmap chunk already holds more than ARRAY_LIMIT values, so the union stays a bitmap
+        long[] bits = new long[BITMAP_WORDS];
+        for (Object container : new Object[]{a, b}) {
+            if (container instanceof char[] array) {
+                set(bits, array, array.length);
+            } else {
+                long[] other = (long[]) container;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    bits[w] |= other[w];
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static char[] intersect(char[] left, char[] right) {
+        char[] result = new char[Math.min(left.length, right.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[n++] = left[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int intersectCount(char[] left, char[] right) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static char[] filter(char[] array, long[] bits) {
+        char[] result = new char[array.length];
+        int n = 0;
+        for (char low : array) {
+            if ((bits[low >>> 6] & (1L << low)) != 0) {
+                result[n++] = low;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int filterCount(char[] array, long[] bits) {
+        int count = 0;
+        for (char low : array) {
+            if ((bits[low >>> 6] & (1L << low)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void set(long[] bits, char[] array, int length) {
+        for (int i = 0; i < length; i++) {
+            bits[array[i] >>> 6] |= 1L << array[i];
+        }
+    }
+
+    private static char[] toArray(long[] bits, int count) {
+        char[] array = new char[count];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                array[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return array;
+    }
+
+    private static int size(Object container) {
+        return container instanceof char[] array ? array.length : bitCount((long[]) container);
+    }
+
+    private static int bitCount(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
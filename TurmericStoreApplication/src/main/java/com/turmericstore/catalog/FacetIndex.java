@@ -0,0 +1,159 @@
+package com.turmericstore.catalog;
+
+import com.turmericstore.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * One {@link CompactBitmap} per facet value over the product positions of a listing snapshot.
+ * Selections are OR-ed within a facet and AND-ed across facets. Counts for a facet ignore
+ * that facet's own selection, so the other values stay visible as alternatives.
+ */
+final class FacetIndex {
+
+    static final String ATTRIBUTE_PREFIX = "attributes.";
+    static final Set<String> FIELDS = Set.of("brand", "country", "unit", "tag", "featured");
+
+    // Values listed per facet in a count response, most frequent first
+    private static final int MAX_VALUES_PER_FACET = 50;
+
+    private final Map<String, Map<String, CompactBitmap>> bitmaps = new TreeMap<>();
+
+    FacetIndex(Product[] products) {
+        Map<String, Map<String, PositionList>> positions = new HashMap<>();
+        for (int p = 0; p < products.length; p++) {
+            Product product = products[p];
+            add(positions, "brand", product.getBrand(), p);
+            add(positions, "country", product.getCountry(), p);
+            add(positions, "unit", product.getUnit(), p);
+            add(positions, "featured", String.valueOf(Boolean.TRUE.equals(product.getFeatured())), p);
+            if (product.getTags() != null) {
+                for (String tag : product.getTags()) {
+                    add(positions, "tag", tag, p);
+                }
+            }
+            if (product.getAttributes() != null) {
+                for (Map.Entry<String, String> attribute : product.getAttributes().entrySet()) {
+                    add(positions, ATTRIBUTE_PREFIX + attribute.getKey(), attribute.getValue(), p);
+                }
+            }
+        }
+
+        // Positions were added in increasing order, as CompactBitmap.of expects
+        positions.forEach((facet, values) -> {
+            Map<String, CompactBitmap> valueBitmaps = new HashMap<>(values.size() * 2);
+            values.forEach((value, list) -> valueBitmaps.put(value, CompactBitmap.of(list.values, list.size)));
+            bitmaps.put(facet, valueBitmaps);
+        });
+    }
+
+    static boolean isFacet(String name) {
+        return FIELDS.contains(name) || (name.startsWith(ATTRIBUTE_PREFIX) && name.length() > ATTRIBUTE_PREFIX.length());
+    }
+
+    /**
+     * Products matching every selected facet, skipping {@code excludedFacet}.
+     * Null when nothing constrains the result.
+     */
+    CompactBitmap match(Map<String, Set<String>> selections, String excludedFacet) {
+        if (selections == null) {
+            return null;
+        }
+
+        CompactBitmap result = null;
+        for (Map.Entry<String, Set<String>> selection : selections.entrySet()) {
+            if (selection.getKey().equals(excludedFacet)) {
+                continue;
+            }
+            Map<String, CompactBitmap> values = bitmaps.getOrDefault(selection.getKey(), Map.of());
+            CompactBitmap any = CompactBitmap.EMPTY;
+            for (String value : selection.getValue()) {
+                CompactBitmap bitmap = values.get(value);
+                if (bitmap != null) {
+                    any = any.or(bitmap);
+                }
+            }
+            result = result == null ? any : result.and(any);
+            if (result.cardinality() == 0) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Value counts per facet over {@code base} (null for every product), narrowed by the
+     * selections on the other facets.
+     */
+    Map<String, Map<String, Integer>> count(CompactBitmap base, Map<String, Set<String>> selections) {
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        CompactBitmap shared = intersect(base, match(selections, null));
+
+        bitmaps.forEach((facet, values) -> {
+            // Only a facet with its own selection needs a scope different from the shared one
+            CompactBitmap scope = selections != null && selections.containsKey(facet)
+                    ? intersect(base, match(selections, facet))
+                    : shared;
+
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+            values.forEach((value, bitmap) -> {
+                int count = scope == null ? bitmap.cardinality() : bitmap.andCardinality(scope);
+                if (count > 0) {
+                    entries.add(Map.entry(value, count));
+                }
+            });
+            if (entries.isEmpty()) {
+                return;
+            }
+
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            Map<String, Integer> facetCounts = new LinkedHashMap<>();
+            entries.stream()
+                    .limit(MAX_VALUES_PER_FACET)
+                    .forEach(entry -> facetCounts.put(entry.getKey(), entry.getValue()));
+            counts.put(facet, facetCounts);
+        });
+        return counts;
+    }
+
+    // Helper methods
+    private static CompactBitmap intersect(CompactBitmap a, CompactBitmap b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : a.and(b);
+    }
+
+    private static void add(Map<String, Map<String, PositionList>> positions, String facet, String value, int p) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        positions.computeIfAbsent(facet, f -> new HashMap<>())
+                .computeIfAbsent(value, v -> new PositionList())
+                .add(p);
+    }
+
+    private static final class PositionList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int p) {
+            // A product listing the same tag twice is counted once
+            if (size > 0 && values[size - 1] == p) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = p;
+        }
+    }
+}
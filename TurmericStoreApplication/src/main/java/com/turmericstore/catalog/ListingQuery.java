@@ -0,0 +1,50 @@
+package com.turmericstore.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filters, sort order and window for a product listing. Price bounds apply to the
+ * effective price, i.e. the discount price when the product is discounted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingQuery {
+
+    public enum SortKey {
+        PRICE, EFFECTIVE_PRICE, DISCOUNT, CREATED_AT, STOCK
+    }
+
+    // Restricts the listing to these categories; null means the whole catalog
+    private Collection<String> categoryIds;
+
+    private Double minPrice;
+
+    private Double maxPrice;
+
+    private boolean discountedOnly;
+
+    private boolean inStockOnly;
+
+    // Facet name to accepted values; any value of a facet matches, every facet must match
+    private Map<String, Set<String>> facets;
+
+    private boolean facetCounts;
+
+    @Builder.Default
+    private SortKey sortKey = SortKey.CREATED_AT;
+
+    private boolean descending;
+
+    private int offset;
+
+    private int limit;
+}
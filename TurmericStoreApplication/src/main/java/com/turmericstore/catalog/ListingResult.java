@@ -0,0 +1,21 @@
+package com.turmericstore.catalog;
+
+import com.turmericstore.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class ListingResult {
+
+    private List<Product> products;
+
+    // Number of products matching the filters, across all windows
+    private int total;
+
+    // Facet name to value counts, when requested
+    private Map<String, Map<String, Integer>> facetCounts;
+}
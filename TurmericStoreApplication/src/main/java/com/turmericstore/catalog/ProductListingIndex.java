@@ -0,0 +1,404 @@
+package com.turmericstore.catalog;
+
+import com.turmericstore.model.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sorted primitive arrays over the active products, one permutation per sort key for the
+ * whole catalog and for every category. A listing query picks the permutation for its sort
+ * key, narrows it with binary search when the filter is on that same key, and walks the
+ * slice checking the remaining filters against primitive columns, never the Product objects.
+ * Facet filters and counts come from per-value {@link CompactBitmap}s over the same positions.
+ * Catalog changes rebuild the index on a background thread; queries keep using the previous
+ * one until the new one is swapped in, so they never wait for a rebuild.
+ */
+@Component
+public class ProductListingIndex implements CatalogChangeListener {
+
+    private static final int PRICE = ListingQuery.SortKey.PRICE.ordinal();
+    private static final int EFFECTIVE_PRICE = ListingQuery.SortKey.EFFECTIVE_PRICE.ordinal();
+    private static final int DISCOUNT = ListingQuery.SortKey.DISCOUNT.ordinal();
+    private static final int CREATED_AT = ListingQuery.SortKey.CREATED_AT.ordinal();
+    private static final int STOCK = ListingQuery.SortKey.STOCK.ordinal();
+    private static final int KEY_COUNT = ListingQuery.SortKey.values().length;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductListingIndex.class);
+
+    private final Object lock = new Object();
+    private final Map<String, Product> products = new HashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(List.of());
+
+    // One rebuild at a time; changes arriving during a rebuild queue exactly one more
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "listing-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    @Override
+    public void onProductsChanged(List<CatalogChange<Product>> changes) {
+        synchronized (lock) {
+            for (CatalogChange<Product> change : changes) {
+                if (change.isRemoval()) {
+                    products.remove(change.getId());
+                } else {
+                    products.put(change.getId(), change.getAfter());
+                }
+            }
+        }
+        scheduleRebuild();
+    }
+
+    public ListingResult query(ListingQuery query) {
+        return snapshot.query(query, selections(query.getFacets()));
+    }
+
+    /**
+     * Narrows already ranked products (search hits) by facet selections, keeping their order,
+     * and optionally counts facet values over all of them. Products the listing does not hold,
+     * i.e. inactive ones, are dropped.
+     */
+    public ListingResult refine(List<Product> ranked, Map<String, Set<String>> facets,
+                                boolean facetCounts, int offset, int limit) {
+        return snapshot.refine(ranked, selections(facets), facetCounts, offset, limit);
+    }
+
+    /**
+     * True for brand, country, unit, tag, featured and attributes.&lt;key&gt;.
+     */
+    public static boolean isFacet(String name) {
+        return FacetIndex.isFacet(name);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuildPending.compareAndSet(false, true)) {
+            return; // The queued rebuild has not started yet and will see this change
+        }
+        rebuildExecutor.execute(() -> {
+            rebuildPending.set(false);
+            try {
+                List<Product> productList;
+                synchronized (lock) {
+                    productList = new ArrayList<>(products.values());
+                }
+                // Built outside the lock so catalog listeners are never held up
+                snapshot = new Snapshot(productList);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to rebuild the product listing index", e);
+            }
+        });
+    }
+
+    private static Map<String, Set<String>> selections(Map<String, Set<String>> facets) {
+        return facets == null || facets.isEmpty() ? null : facets;
+    }
+
+    // Binary search helpers; Double.compare sorts NaN (missing values) after every number
+    private static int lowerBound(double[] keys, double value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(keys[mid], value) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Stable merge sort of positions by a column, on primitive arrays; ties keep position (id) order
+    private static int[] sortByColumn(double[] column) {
+        int size = column.length;
+        int[] order = new int[size];
+        for (int p = 0; p < size; p++) {
+            order[p] = p;
+        }
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                int mid = low + width;
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = mid;
+                int out = low;
+                while (left < mid && right < high) {
+                    buffer[out++] = Double.compare(column[order[right]], column[order[left]]) < 0
+                            ? order[right++] : order[left++];
+                }
+                while (left < mid) {
+                    buffer[out++] = order[left++];
+                }
+                while (right < high) {
+                    buffer[out++] = order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+        return order;
+    }
+
+    private static int upperBound(double[] keys, double value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(keys[mid], value) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class SortedRun {
+        private final int[] order;
+        private final double[] keys;
+
+        private SortedRun(int[] order, double[] column) {
+            this.order = order;
+            this.keys = new double[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = column[order[i]];
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final Product[] products;
+        private final Map<String, Integer> positions;
+        private final FacetIndex facetIndex;
+        // columns[key][product], NaN where the product has no value
+        private final double[][] columns = new double[KEY_COUNT][];
+        private final int[] categoryCodes;
+        private final Map<String, Integer> categoryIndex = new HashMap<>();
+        private final SortedRun[] all = new SortedRun[KEY_COUNT];
+        private final SortedRun[][] byCategory;
+
+        private Snapshot(Collection<Product> source) {
+            // Sorted by id so equal keys keep a stable, deterministic order
+            products = source.stream()
+                    .filter(product -> Boolean.TRUE.equals(product.getActive()))
+                    .sorted(Comparator.comparing(Product::getId))
+                    .toArray(Product[]::new);
+            int size = products.length;
+            positions = new HashMap<>(size * 2);
+            for (int p = 0; p < size; p++) {
+                positions.put(products[p].getId(), p);
+            }
+            facetIndex = new FacetIndex(products);
+
+            for (int key = 0; key < KEY_COUNT; key++) {
+                columns[key] = new double[size];
+            }
+            categoryCodes = new int[size];
+            for (int p = 0; p < size; p++) {
+                Product product = products[p];
+                double price = toDouble(product.getPrice());
+                // isDiscounted() unboxes the price, so only ask when there is one
+                boolean discounted = product.getPrice() != null && product.isDiscounted();
+                columns[PRICE][p] = price;
+                columns[EFFECTIVE_PRICE][p] = discounted ? product.getDiscountPrice() : price;
+                columns[DISCOUNT][p] = discounted && price > 0
+                        ? (price - product.getDiscountPrice()) / price * 100
+                        : 0;
+                columns[CREATED_AT][p] = product.getCreatedAt() != null ? product.getCreatedAt() : Double.NaN;
+                columns[STOCK][p] = product.getStock() != null ? product.getStock() : Double.NaN;
+
+                String categoryId = product.getCategoryId();
+                categoryCodes[p] = categoryId == null ? -1
+                        : categoryIndex.computeIfAbsent(categoryId, id -> categoryIndex.size());
+            }
+
+            int categoryCount = categoryIndex.size();
+            int[] categorySizes = new int[categoryCount];
+            for (int code : categoryCodes) {
+                if (code >= 0) {
+                    categorySizes[code]++;
+                }
+            }
+
+            byCategory = new SortedRun[categoryCount][KEY_COUNT];
+            for (int key = 0; key < KEY_COUNT; key++) {
+                double[] column = columns[key];
+                int[] order = sortByColumn(column);
+                all[key] = new SortedRun(order, column);
+
+                // Filtering the global order keeps each category's permutation sorted
+                int[][] categoryOrders = new int[categoryCount][];
+                int[] filled = new int[categoryCount];
+                for (int code = 0; code < categoryCount; code++) {
+                    categoryOrders[code] = new int[categorySizes[code]];
+                }
+                for (int p : order) {
+                    int code = categoryCodes[p];
+                    if (code >= 0) {
+                        categoryOrders[code][filled[code]++] = p;
+                    }
+                }
+                for (int code = 0; code < categoryCount; code++) {
+                    byCategory[code][key] = new SortedRun(categoryOrders[code], column);
+                }
+            }
+        }
+
+        private ListingResult query(ListingQuery query, Map<String, Set<String>> selections) {
+            int key = query.getSortKey().ordinal();
+            SortedRun run = all[key];
+            boolean[] allowedCategories = null;
+
+            Collection<String> categoryIds = query.getCategoryIds();
+            if (categoryIds != null) {
+                if (categoryIds.size() == 1) {
+                    Integer code = categoryIndex.get(categoryIds.iterator().next());
+                    if (code == null) {
+                        return new ListingResult(new ArrayList<>(), 0, query.isFacetCounts() ? Map.of() : null);
+                    }
+                    run = byCategory[code][key];
+                } else {
+                    allowedCategories = new boolean[categoryIndex.size()];
+                    for (String categoryId : categoryIds) {
+                        Integer code = categoryIndex.get(categoryId);
+                        if (code != null) {
+                            allowedCategories[code] = true;
+                        }
+                    }
+                }
+            }
+
+            // Products without a value for the sort key are left out of the listing
+            double[] keys = run.keys;
+            int from = 0;
+            int to = lowerBound(keys, Double.NaN);
+
+            // Filters on the sort key itself become a contiguous slice
+            if (key == EFFECTIVE_PRICE) {
+                if (query.getMinPrice() != null) {
+                    from = Math.max(from, lowerBound(keys, query.getMinPrice()));
+                }
+                if (query.getMaxPrice() != null) {
+                    to = Math.min(to, upperBound(keys, query.getMaxPrice()));
+                }
+            } else if (key == DISCOUNT && query.isDiscountedOnly()) {
+                from = Math.max(from, upperBound(keys, 0));
+            } else if (key == STOCK && query.isInStockOnly()) {
+                from = Math.max(from, upperBound(keys, 0));
+            }
+
+            boolean residual = allowedCategories != null
+                    || (key != EFFECTIVE_PRICE && (query.getMinPrice() != null || query.getMaxPrice() != null))
+                    || (key != DISCOUNT && query.isDiscountedOnly())
+                    || (key != STOCK && query.isInStockOnly());
+            CompactBitmap facetMatch = facetIndex.match(selections, null);
+            // Counts cover every product passing the non-facet filters, so that walk cannot stop early
+            long[] matched = query.isFacetCounts() ? new long[(products.length + 63) >>> 6] : null;
+
+            List<Product> window = new ArrayList<>(Math.min(query.getLimit(), Math.max(0, to - from)));
+            int windowEnd = query.getOffset() + query.getLimit();
+            int total = 0;
+            for (int step = 0; step < to - from; step++) {
+                int p = run.order[query.isDescending() ? to - 1 - step : from + step];
+                if (residual && !matches(p, query, allowedCategories)) {
+                    continue;
+                }
+                if (matched != null) {
+                    matched[p >>> 6] |= 1L << p;
+                }
+                if (facetMatch != null && !facetMatch.contains(p)) {
+                    continue;
+                }
+                if (total >= query.getOffset() && total < windowEnd) {
+                    window.add(products[p]);
+                }
+                total++;
+                if (!residual && facetMatch == null && matched == null && total >= windowEnd) {
+                    // Every product in the slice matches, so the total is known without walking it
+                    total = Math.max(0, to - from);
+                    break;
+                }
+            }
+
+            Map<String, Map<String, Integer>> facetCounts = matched != null
+                    ? facetIndex.count(CompactBitmap.fromWords(matched), selections)
+                    : null;
+            return new ListingResult(window, total, facetCounts);
+        }
+
+        private ListingResult refine(List<Product> ranked, Map<String, Set<String>> selections,
+                                     boolean facetCounts, int offset, int limit) {
+            int[] order = new int[ranked.size()];
+            int size = 0;
+            long[] matched = new long[(products.length + 63) >>> 6];
+            for (Product product : ranked) {
+                Integer p = positions.get(product.getId());
+                if (p != null && (matched[p >>> 6] & (1L << p)) == 0) {
+                    matched[p >>> 6] |= 1L << p;
+                    order[size++] = p;
+                }
+            }
+
+            CompactBitmap facetMatch = facetIndex.match(selections, null);
+            List<Product> window = new ArrayList<>(Math.min(limit, size));
+            int total = 0;
+            for (int i = 0; i < size; i++) {
+                int p = order[i];
+                if (facetMatch != null && !facetMatch.contains(p)) {
+                    continue;
+                }
+                if (total >= offset && total < offset + limit) {
+                    window.add(products[p]);
+                }
+                total++;
+            }
+
+            Map<String, Map<String, Integer>> counts = facetCounts
+                    ? facetIndex.count(CompactBitmap.fromWords(matched), selections)
+                    : null;
+            return new ListingResult(window, total, counts);
+        }
+
+        private boolean matches(int p, ListingQuery query, boolean[] allowedCategories) {
+            if (allowedCategories != null && (categoryCodes[p] < 0 || !allowedCategories[categoryCodes[p]])) {
+                return false;
+            }
+            double effectivePrice = columns[EFFECTIVE_PRICE][p];
+            // Written so that a missing (NaN) price never passes a price bound
+            if (query.getMinPrice() != null && !(effectivePrice >= query.getMinPrice())) {
+                return false;
+            }
+            if (query.getMaxPrice() != null && !(effectivePrice <= query.getMaxPrice())) {
+                return false;
+            }
+            if (query.isDiscountedOnly() && !(columns[DISCOUNT][p] > 0)) {
+                return false;
+            }
+            return !query.isInStockOnly() || columns[STOCK][p] > 0;
+        }
+
+        private static double toDouble(Double value) {
+            return value != null ? value : Double.NaN;
+        }
+    }
+}
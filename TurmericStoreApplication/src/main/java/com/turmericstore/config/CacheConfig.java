@@ -1,33 +1,57 @@
 package com.turmericstore.config;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    private static final String REFRESH_AFTER_WRITE = "refreshAfterWrite=";
+
     @Value("${spring.cache.cache-names}")
     private String[] cacheNames;
 
+    @Value("${app.cache.default-spec:maximumSize=500,expireAfterWrite=30m}")
+    private String defaultSpec;
+
+    // Background reloads for refresh-ahead caches; kept off the request threads
+    private final ExecutorService refreshExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Catalog entries are keyed through CacheKeys, so invalidation bumps a scope version instead of clearing a cache
     @Bean
     @Primary
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        cacheManager.setCacheNames(Arrays.asList(cacheNames));
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .maximumSize(500)
-                .expireAfterWrite(30, TimeUnit.MINUTES)
-                .recordStats());
+    public CacheManager cacheManager(Environment environment) {
+        List<Cache> caches = new ArrayList<>();
+        for (String name : cacheNames) {
+            String cacheName = name.trim();
+            String spec = environment.getProperty("app.cache.specs." + cacheName, defaultSpec);
+            caches.add(buildCache(cacheName, spec));
+        }
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
         return cacheManager;
     }
 
@@ -40,4 +64,46 @@ public class CacheConfig {
                 .recordStats());
         return cacheManager;
     }
-}
\ No newline at end of file
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // Helper methods
+    private Cache buildCache(String name, String spec) {
+        // Caffeine only accepts refreshAfterWrite with a loader, so it is handled by RefreshAheadCache instead
+        long refreshAfterNanos = 0;
+        List<String> caffeineOptions = new ArrayList<>();
+        for (String option : spec.split(",")) {
+            String trimmed = option.trim();
+            if (trimmed.startsWith(REFRESH_AFTER_WRITE)) {
+                refreshAfterNanos = parseDuration(trimmed.substring(REFRESH_AFTER_WRITE.length()));
+            } else if (!trimmed.isEmpty()) {
+                caffeineOptions.add(trimmed);
+            }
+        }
+
+        AsyncCache<Object, RefreshAheadCache.Entry> cache = Caffeine.from(String.join(",", caffeineOptions))
+                .recordStats()
+                .buildAsync();
+        return new RefreshAheadCache(name, cache, refreshAfterNanos, refreshExecutor);
+    }
+
+    // Same duration format as Caffeine specs: a number followed by d, h, m or s
+    private static long parseDuration(String value) {
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+            case 'd':
+                return TimeUnit.DAYS.toNanos(amount);
+            case 'h':
+                return TimeUnit.HOURS.toNanos(amount);
+            case 'm':
+                return TimeUnit.MINUTES.toNanos(amount);
+            case 's':
+                return TimeUnit.SECONDS.toNanos(amount);
+            default:
+                throw new IllegalArgumentException("Invalid refreshAfterWrite duration: " + value);
+        }
+    }
+}
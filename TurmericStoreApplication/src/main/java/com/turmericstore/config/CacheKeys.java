@@ -0,0 +1,95 @@
+package com.turmericstore.config;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version-stamped cache keys for catalog caches. Each key belongs to a scope (one product,
+ * one category's product list, the featured list, ...) and carries that scope's current
+ * version, so invalidating a scope is a version bump rather than a cache clear. A reader
+ * that started before the bump stores its result under the old key, which nothing looks
+ * up any more, so a racing load can never resurrect stale data.
+ *
+ * Used from {@code @Cacheable} key expressions, e.g. {@code key = "@cacheKeys.featuredProducts()"}.
+ */
+@Component("cacheKeys")
+public class CacheKeys {
+
+    // Shared sequence so a scope never returns to a version it has used before
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<String, Long> versions = new ConcurrentHashMap<>();
+
+    // Scopes
+    public static String productScope(String productId) {
+        return "product_" + productId;
+    }
+
+    public static String categoryProductsScope(String categoryId) {
+        return "category_" + categoryId;
+    }
+
+    public static final String ALL_PRODUCTS_SCOPE = "all_products";
+    public static final String FEATURED_PRODUCTS_SCOPE = "featured";
+
+    public static String categoryScope(String categoryId) {
+        return "category_details_" + categoryId;
+    }
+
+    public static String parentCategoriesScope(String parentId) {
+        return "parent_" + parentId;
+    }
+
+    public static final String ALL_CATEGORIES_SCOPE = "all_categories";
+    public static final String ACTIVE_CATEGORIES_SCOPE = "active";
+
+    // Keys for the "product-details" and "products" caches
+    public String productDetails(String productId) {
+        return key(productScope(productId));
+    }
+
+    public String allProducts() {
+        return key(ALL_PRODUCTS_SCOPE);
+    }
+
+    public String categoryProducts(String categoryId) {
+        return key(categoryProductsScope(categoryId));
+    }
+
+    public String featuredProducts() {
+        return key(FEATURED_PRODUCTS_SCOPE);
+    }
+
+    // Keys for the "categories" cache
+    public String category(String categoryId) {
+        return key(categoryScope(categoryId));
+    }
+
+    public String allCategories() {
+        return key(ALL_CATEGORIES_SCOPE);
+    }
+
+    public String activeCategories() {
+        return key(ACTIVE_CATEGORIES_SCOPE);
+    }
+
+    public String childCategories(String parentId) {
+        return key(parentCategoriesScope(parentId));
+    }
+
+    /**
+     * Moves the scope to a new version and returns the key it replaces, so the caller
+     * can evict the orphaned entry right away instead of waiting for it to expire.
+     */
+    public String bump(String scope) {
+        String staleKey = key(scope);
+        versions.put(scope, sequence.incrementAndGet());
+        return staleKey;
+    }
+
+    private String key(String scope) {
+        return scope + "@" + versions.getOrDefault(scope, 0L);
+    }
+}
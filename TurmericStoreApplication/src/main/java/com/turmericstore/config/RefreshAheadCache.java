@@ -0,0 +1,174 @@
+package com.turmericstore.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Spring cache over a Caffeine {@link AsyncCache} that loads each key at most once at a time
+ * and refreshes entries ahead of expiry. Concurrent misses on a key wait on the same load
+ * instead of each going to Firestore. Once an entry is older than the refresh interval, the
+ * next read returns it as is and reloads it in the background with that read's value loader,
+ * so a hot key never blocks a request thread after its first load.
+ *
+ * Requires {@code @Cacheable(sync = true)}; that is the only path Spring passes a value loader.
+ */
+public class RefreshAheadCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshAheadCache.class);
+
+    private final String name;
+    private final AsyncCache<Object, Entry> cache;
+    private final long refreshAfterNanos;
+    private final Executor refreshExecutor;
+
+    public RefreshAheadCache(String name, AsyncCache<Object, Entry> cache, long refreshAfterNanos, Executor refreshExecutor) {
+        this.name = name;
+        this.cache = cache;
+        this.refreshAfterNanos = refreshAfterNanos;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Entry entry = completedEntry(cache.getIfPresent(key));
+        return entry != null ? new SimpleValueWrapper(entry.value) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        Entry entry = completedEntry(cache.getIfPresent(key));
+        if (entry == null) {
+            return null;
+        }
+        if (type != null && entry.value != null && !type.isInstance(entry.value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + entry.value);
+        }
+        return (T) entry.value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ConcurrentMap<Object, CompletableFuture<Entry>> map = cache.asMap();
+        CompletableFuture<Entry> future = map.get(key);
+
+        if (future == null) {
+            CompletableFuture<Entry> loading = new CompletableFuture<>();
+            future = map.putIfAbsent(key, loading);
+            if (future == null) {
+                // This thread won the race: load inline, everyone else waits on the same future
+                try {
+                    Entry entry = new Entry(valueLoader.call());
+                    loading.complete(entry);
+                    return (T) entry.value;
+                } catch (Throwable ex) {
+                    // Hand the failure to the waiters without caching it (a failed future would also be logged by Caffeine)
+                    map.remove(key, loading);
+                    loading.complete(Entry.failed(ex));
+                    throw new ValueRetrievalException(key, valueLoader, ex);
+                }
+            }
+        }
+
+        Entry entry = future.join();
+        if (entry.failure != null) {
+            throw new ValueRetrievalException(key, valueLoader, entry.failure);
+        }
+
+        if (entry.isStale(refreshAfterNanos)) {
+            refresh(key, future, entry, valueLoader);
+        }
+        return (T) entry.value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        cache.put(key, CompletableFuture.completedFuture(new Entry(value)));
+    }
+
+    @Override
+    public void evict(Object key) {
+        cache.synchronous().invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.synchronous().invalidateAll();
+    }
+
+    // Helper methods
+    private void refresh(Object key, CompletableFuture<Entry> current, Entry entry, Callable<?> valueLoader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return; // Another request already started the reload
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Entry fresh = new Entry(valueLoader.call());
+                    // Skip if the key was evicted or replaced while reloading
+                    cache.asMap().replace(key, current, CompletableFuture.completedFuture(fresh));
+                } catch (Throwable ex) {
+                    // Keep serving the old value; the next read past the interval retries
+                    logger.warn("Background refresh of {}::{} failed", name, key, ex);
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException ex) {
+            logger.warn("Could not schedule refresh of {}::{}", name, key, ex);
+            entry.refreshing.set(false);
+        }
+    }
+
+    private static Entry completedEntry(CompletableFuture<Entry> future) {
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        Entry entry = future.join();
+        return entry.failure == null ? entry : null;
+    }
+
+    public static final class Entry {
+        private final Object value;
+        private final Throwable failure;
+        private final long loadedAt = System.nanoTime();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(Object value) {
+            this(value, null);
+        }
+
+        private Entry(Object value, Throwable failure) {
+            this.value = value;
+            this.failure = failure;
+        }
+
+        private static Entry failed(Throwable failure) {
+            return new Entry(null, failure);
+        }
+
+        private boolean isStale(long refreshAfterNanos) {
+            return refreshAfterNanos > 0 && System.nanoTime() - loadedAt >= refreshAfterNanos;
+        }
+    }
+}
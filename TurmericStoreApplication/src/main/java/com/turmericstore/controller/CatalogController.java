@@ -0,0 +1,32 @@
+package com.turmericstore.controller;
+
+import com.turmericstore.dto.CatalogChangesResponse;
+import com.turmericstore.service.CatalogSyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/catalog")
+@Tag(name = "Catalog API", description = "Endpoints for keeping an offline copy of the catalog in sync")
+public class CatalogController {
+
+    private final CatalogSyncService catalogSyncService;
+
+    @Autowired
+    public CatalogController(CatalogSyncService catalogSyncService) {
+        this.catalogSyncService = catalogSyncService;
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get catalog changes", description = "Returns products and categories created or updated since the token, "
+            + "plus the ids of deleted ones. Without a token, or with one past the 30-day tombstone retention, "
+            + "resetRequired asks the client to reload the full catalog and continue from nextToken")
+    public ResponseEntity<CatalogChangesResponse> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "200") int limit) {
+        return ResponseEntity.ok(catalogSyncService.getChanges(since, limit));
+    }
+}
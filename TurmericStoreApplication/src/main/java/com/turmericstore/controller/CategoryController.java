@@ -1,14 +1,14 @@
 package com.turmericstore.controller;
 
-import com.turmericstore.dto.CategoryDTO;
+import com.turmericstore.catalog.CatalogResponseCache;
 import com.turmericstore.service.CategoryService;
+import com.turmericstore.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -16,39 +16,57 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final ProductService productService;
+    private final CatalogResponseCache responseCache;
 
     @Autowired
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, ProductService productService,
+                              CatalogResponseCache responseCache) {
         this.categoryService = categoryService;
+        this.productService = productService;
+        this.responseCache = responseCache;
     }
 
     @GetMapping
     @Operation(summary = "Get all categories", description = "Retrieves all categories")
-    public ResponseEntity<List<CategoryDTO>> getAllCategories() {
-        return ResponseEntity.ok(categoryService.getAllCategories());
+    public ResponseEntity<byte[]> getAllCategories(WebRequest request) {
+        return responseCache.categories("all", request, categoryService::getAllCategories);
     }
 
     @GetMapping("/active")
     @Operation(summary = "Get active categories", description = "Retrieves all active categories")
-    public ResponseEntity<List<CategoryDTO>> getActiveCategories() {
-        return ResponseEntity.ok(categoryService.getAllActiveCategories());
+    public ResponseEntity<byte[]> getActiveCategories(WebRequest request) {
+        return responseCache.categories("active", request, categoryService::getAllActiveCategories);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get category by ID", description = "Retrieves a specific category by its ID")
-    public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable String id) {
-        return ResponseEntity.ok(categoryService.getCategoryById(id));
+    public ResponseEntity<byte[]> getCategoryById(@PathVariable String id, WebRequest request) {
+        return responseCache.categories("id:" + id, request, () -> categoryService.getCategoryById(id));
+    }
+
+    @GetMapping("/{id}/products")
+    @Operation(summary = "Get category products", description = "Retrieves the products of a category, including all of its subcategories when includeDescendants is true")
+    public ResponseEntity<byte[]> getCategoryProducts(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean includeDescendants,
+            WebRequest request) {
+        if (includeDescendants) {
+            return responseCache.products("tree:" + id, request, () -> productService.getProductsInCategoryTree(id));
+        }
+        return responseCache.products("category:" + id, request, () -> productService.getProductsByCategory(id));
     }
 
     @GetMapping("/subcategories/{parentId}")
     @Operation(summary = "Get subcategories", description = "Retrieves subcategories for a parent category")
-    public ResponseEntity<List<CategoryDTO>> getSubcategories(@PathVariable String parentId) {
-        return ResponseEntity.ok(categoryService.getCategoriesByParentId(parentId));
+    public ResponseEntity<byte[]> getSubcategories(@PathVariable String parentId, WebRequest request) {
+        return responseCache.categories("parent:" + parentId, request,
+                () -> categoryService.getCategoriesByParentId(parentId));
     }
 
     @GetMapping("/root")
     @Operation(summary = "Get root categories", description = "Retrieves root categories (categories without a parent)")
-    public ResponseEntity<List<CategoryDTO>> getRootCategories() {
-        return ResponseEntity.ok(categoryService.getCategoriesByParentId(null));
+    public ResponseEntity<byte[]> getRootCategories(WebRequest request) {
+        return responseCache.categories("root", request, () -> categoryService.getCategoriesByParentId(null));
     }
 }
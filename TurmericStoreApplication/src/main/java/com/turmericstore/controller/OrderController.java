@@ -1,6 +1,7 @@
 package com.turmericstore.controller;
 
 import com.turmericstore.dto.OrderDTO;
+import com.turmericstore.service.IdempotencyService;
 import com.turmericstore.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -21,10 +22,12 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
     }
 
     @GetMapping
@@ -56,13 +59,14 @@ public class OrderController {
 
     @PostMapping
     @PreAuthorize("isAuthenticated()")
-    @Operation(summary = "Create order", description = "Creates a new order")
-    public ResponseEntity<OrderDTO> createOrder(@Valid @RequestBody OrderDTO orderDTO, @AuthenticationPrincipal UserDetails userDetails) {
+    @Operation(summary = "Create order", description = "Creates a new order. Retries sent with the same Idempotency-Key return the original response instead of placing another order")
+    public ResponseEntity<OrderDTO> createOrder(@Valid @RequestBody OrderDTO orderDTO, @AuthenticationPrincipal UserDetails userDetails,
+                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         // Set the user ID from the authenticated user
         String userId = userDetails.getUsername(); // This is temporary; in reality, you'd get the user ID associated with this email
         orderDTO.setUserId(userId);
 
-        OrderDTO createdOrder = orderService.createOrder(orderDTO);
-        return new ResponseEntity<>(createdOrder, HttpStatus.CREATED);
+        return idempotencyService.execute("orders", userId, idempotencyKey, orderDTO, OrderDTO.class,
+                () -> new ResponseEntity<>(orderService.createOrder(orderDTO), HttpStatus.CREATED));
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.turmericstore.controller;
 
 import com.turmericstore.dto.PaymentDTO;
+import com.turmericstore.service.IdempotencyService;
 import com.turmericstore.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,24 +20,27 @@ import org.springframework.web.bind.annotation.*;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, IdempotencyService idempotencyService) {
         this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping
     @PreAuthorize("isAuthenticated()")
-    @Operation(summary = "Process payment", description = "Processes a payment for an order")
+    @Operation(summary = "Process payment", description = "Processes a payment for an order. Retries sent with the same Idempotency-Key return the original response instead of charging again")
     public ResponseEntity<PaymentDTO> processPayment(
             @Valid @RequestBody PaymentDTO paymentDTO,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         // Set the user ID from the authenticated user
         String userId = userDetails.getUsername(); // This is temporary; in reality, you'd get the user ID associated with this email
         paymentDTO.setUserId(userId);
 
-        PaymentDTO processedPayment = paymentService.processPayment(paymentDTO);
-        return new ResponseEntity<>(processedPayment, HttpStatus.CREATED);
+        return idempotencyService.execute("payments", userId, idempotencyKey, paymentDTO, PaymentDTO.class,
+                () -> new ResponseEntity<>(paymentService.processPayment(paymentDTO), HttpStatus.CREATED));
     }
 
     @GetMapping("/{id}")
@@ -1,6 +1,8 @@
 package com.turmericstore.controller;
 
+import com.turmericstore.catalog.CatalogResponseCache;
 import com.turmericstore.dto.ProductDTO;
+import com.turmericstore.exception.BadRequestException;
 import com.turmericstore.service.ProductService;
 import com.turmericstore.util.AppConstants;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,8 +10,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -19,40 +24,119 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final CatalogResponseCache responseCache;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, CatalogResponseCache responseCache) {
         this.productService = productService;
+        this.responseCache = responseCache;
     }
 
     @GetMapping
     @Operation(summary = "Get all products", description = "Retrieves all products")
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<byte[]> getAllProducts(WebRequest request) {
+        return responseCache.products("all", request, productService::getAllProducts);
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "Get products page", description = "Retrieves products newest first, one page at a time using an opaque cursor. "
+            + "Pass fields (e.g. fields=id,name,price,discountPrice,imageUrl,unit) to receive only those fields")
+    public ResponseEntity<byte[]> getProductsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String fields,
+            WebRequest request) {
+        return responseCache.products(request, () -> fields == null || fields.isBlank()
+                ? productService.getProductsPage(cursor, size)
+                : productService.getProductsPage(cursor, size, fields));
+    }
+
+    @GetMapping("/listing")
+    @Operation(summary = "Get product listing", description = "Retrieves active products filtered by category, effective price range, discount and stock, "
+            + "sorted by price, effectivePrice, discount, createdAt or stock, one window at a time. "
+            + "Facet filters (facet=brand:X, facet=tag:Y, facet=attributes.size:Z) can be repeated; "
+            + "values of one facet are alternatives and different facets must all match")
+    public ResponseEntity<byte[]> getProductListing(
+            @RequestParam(required = false) String categoryId,
+            @RequestParam(defaultValue = "false") boolean includeDescendants,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "false") boolean discounted,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(required = false) List<String> facet,
+            @RequestParam(defaultValue = "false") boolean facetCounts,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        return responseCache.products(request, () -> productService.getProductListing(categoryId, includeDescendants,
+                minPrice, maxPrice, discounted, inStock, facet, facetCounts, sort, direction, offset, limit));
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest products", description = "Autocomplete for the search box: product names, brands and category names "
+            + "with a word starting with the prefix, most popular first")
+    public ResponseEntity<byte[]> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit,
+            WebRequest request) {
+        return responseCache.products(request, () -> productService.suggest(prefix, limit));
+    }
+
+    @GetMapping("/search/faceted")
+    @Operation(summary = "Faceted product search", description = "Search products by keyword, narrowed by facet filters, "
+            + "with value counts for brand, country, unit, tag, featured and every attribute")
+    public ResponseEntity<byte[]> searchProductsFaceted(
+            @RequestParam String keyword,
+            @RequestParam(required = false) List<String> facet,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        return responseCache.products(request, () -> productService.searchProductsFaceted(keyword, facet, offset, limit));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export products", description = "Streams the full catalog one product at a time, as NDJSON (format=ndjson) or a JSON array (format=json)")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        boolean ndjson;
+        if ("ndjson".equalsIgnoreCase(format)) {
+            ndjson = true;
+        } else if ("json".equalsIgnoreCase(format)) {
+            ndjson = false;
+        } else {
+            throw new BadRequestException("Unsupported export format: " + format);
+        }
+
+        StreamingResponseBody body = out -> productService.exportProducts(out, ndjson);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID", description = "Retrieves a specific product by its ID")
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable String id) {
-        return ResponseEntity.ok(productService.getProductById(id));
+    public ResponseEntity<byte[]> getProductById(@PathVariable String id, WebRequest request) {
+        return responseCache.products(request, () -> productService.getProductById(id));
     }
 
     @GetMapping("/category/{categoryId}")
     @Operation(summary = "Get products by category", description = "Retrieves all products in a specific category")
-    public ResponseEntity<List<ProductDTO>> getProductsByCategory(@PathVariable String categoryId) {
-        return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
+    public ResponseEntity<byte[]> getProductsByCategory(@PathVariable String categoryId, WebRequest request) {
+        return responseCache.products("category:" + categoryId, request,
+                () -> productService.getProductsByCategory(categoryId));
     }
 
     @GetMapping("/featured")
     @Operation(summary = "Get featured products", description = "Retrieves all featured products")
-    public ResponseEntity<List<ProductDTO>> getFeaturedProducts() {
-        return ResponseEntity.ok(productService.getFeaturedProducts());
+    public ResponseEntity<byte[]> getFeaturedProducts(WebRequest request) {
+        return responseCache.products("featured", request, productService::getFeaturedProducts);
     }
 
     @GetMapping("/search")
     @Operation(summary = "Search products", description = "Search products by keyword")
-    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String keyword) {
-        return ResponseEntity.ok(productService.searchProducts(keyword));
+    public ResponseEntity<byte[]> searchProducts(@RequestParam String keyword, WebRequest request) {
+        return responseCache.products(request, () -> productService.searchProducts(keyword));
     }
 
     @PostMapping("/by-ids")
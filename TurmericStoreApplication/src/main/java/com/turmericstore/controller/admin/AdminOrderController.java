@@ -1,8 +1,10 @@
 package com.turmericstore.controller.admin;
 
 import com.turmericstore.dto.OrderDTO;
+import com.turmericstore.dto.PageResponse;
 import com.turmericstore.model.Order;
 import com.turmericstore.service.OrderService;
+import com.turmericstore.util.AppConstants;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +33,19 @@ public class AdminOrderController {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get orders page", description = "Retrieves orders newest first, one page at a time using an opaque cursor. "
+            + "Pass fields (e.g. fields=id,orderNumber,status,total,createdAt) to receive only those fields (Admin only)")
+    public ResponseEntity<PageResponse<?>> getOrdersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ResponseEntity.ok(orderService.getOrdersPage(cursor, size));
+        }
+        return ResponseEntity.ok(orderService.getOrdersPage(cursor, size, fields));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID", description = "Retrieves a specific order by its ID (Admin only)")
     public ResponseEntity<OrderDTO> getOrderById(@PathVariable String id) {
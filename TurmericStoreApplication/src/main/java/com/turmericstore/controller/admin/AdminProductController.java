@@ -49,6 +49,14 @@ public class AdminProductController {
         return ResponseEntity.noContent().build();
     }
 
+    @PutMapping("/{id}/stock-shards")
+    @Operation(summary = "Configure stock shards", description = "Splits a hot product's stock across shard documents so flash-sale checkouts do not queue on one document; 0 shards turns sharding off (Admin only)")
+    public ResponseEntity<ProductDTO> configureStockShards(@PathVariable String id,
+                                                           @RequestParam int shards,
+                                                           @RequestParam(required = false) Integer stock) {
+        return ResponseEntity.ok(productService.configureStockShards(id, shards, stock));
+    }
+
     @PostMapping("/upload-image")
     @Operation(summary = "Upload product image", description = "Uploads a product image (Admin only)")
     public ResponseEntity<String> uploadProductImage(@RequestParam("file") MultipartFile file) {
@@ -0,0 +1,36 @@
+package com.turmericstore.controller.admin;
+
+import com.turmericstore.dto.DashboardStatsDTO;
+import com.turmericstore.service.admin.AdminReportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/reports")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Admin Report API", description = "Endpoints for store reports (Admin only)")
+public class AdminReportController {
+
+    private final AdminReportService adminReportService;
+
+    @Autowired
+    public AdminReportController(AdminReportService adminReportService) {
+        this.adminReportService = adminReportService;
+    }
+
+    @GetMapping("/dashboard")
+    @Operation(summary = "Get dashboard stats", description = "Retrieves product, order and user counts from the maintained counters (Admin only)")
+    public ResponseEntity<DashboardStatsDTO> getDashboardStats() {
+        return ResponseEntity.ok(adminReportService.getDashboardStats());
+    }
+
+    @PostMapping("/counters/rebuild")
+    @Operation(summary = "Rebuild counters", description = "Recomputes all counters with aggregation queries (Admin only)")
+    public ResponseEntity<DashboardStatsDTO> rebuildCounters() {
+        return ResponseEntity.ok(adminReportService.rebuildCounters());
+    }
+}
@@ -0,0 +1,31 @@
+package com.turmericstore.controller.admin;
+
+import com.turmericstore.service.admin.AdminSearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/search")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Admin Search API", description = "Endpoints for managing product search (Admin only)")
+public class AdminSearchController {
+
+    private final AdminSearchService adminSearchService;
+
+    @Autowired
+    public AdminSearchController(AdminSearchService adminSearchService) {
+        this.adminSearchService = adminSearchService;
+    }
+
+    @PostMapping("/synonyms/reload")
+    @Operation(summary = "Reload synonyms", description = "Reloads the synonym dictionary and swaps it in without a restart (Admin only)")
+    public ResponseEntity<Map<String, Integer>> reloadSynonyms() {
+        return ResponseEntity.ok(adminSearchService.reloadSynonyms());
+    }
+}
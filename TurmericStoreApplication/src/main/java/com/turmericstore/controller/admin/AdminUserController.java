@@ -1,7 +1,9 @@
 package com.turmericstore.controller.admin;
 
+import com.turmericstore.dto.PageResponse;
 import com.turmericstore.dto.UserDTO;
 import com.turmericstore.service.UserService;
+import com.turmericstore.util.AppConstants;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -31,6 +33,14 @@ public class AdminUserController {
         return ResponseEntity.ok(userService.getAllUsers());
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get users page", description = "Retrieves users newest first, one page at a time using an opaque cursor (Admin only)")
+    public ResponseEntity<PageResponse<UserDTO>> getUsersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size) {
+        return ResponseEntity.ok(userService.getUsersPage(cursor, size));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get user by ID", description = "Retrieves a user by ID (Admin only)")
     public ResponseEntity<UserDTO> getUserById(@PathVariable String id) {
@@ -0,0 +1,38 @@
+package com.turmericstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangesResponse {
+
+    // Created or updated since the token, inactive ones included
+    @Builder.Default
+    private List<ProductDTO> products = new ArrayList<>();
+
+    @Builder.Default
+    private List<CategoryDTO> categories = new ArrayList<>();
+
+    @Builder.Default
+    private List<String> deletedProductIds = new ArrayList<>();
+
+    @Builder.Default
+    private List<String> deletedCategoryIds = new ArrayList<>();
+
+    // Pass as since= on the next request
+    private String nextToken;
+
+    // More changes are waiting; request again right away with nextToken
+    private boolean hasMore;
+
+    // The token is missing or too old: reload the full catalog, then sync from nextToken
+    private boolean resetRequired;
+}
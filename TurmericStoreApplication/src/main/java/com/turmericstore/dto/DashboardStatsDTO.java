@@ -0,0 +1,32 @@
+package com.turmericstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardStatsDTO {
+
+    private Long totalProducts;
+
+    // Keyed by category ID
+    @Builder.Default
+    private Map<String, Long> productsByCategory = new HashMap<>();
+
+    private Long totalOrders;
+
+    // Keyed by order status name
+    @Builder.Default
+    private Map<String, Long> ordersByStatus = new HashMap<>();
+
+    private Long totalUsers;
+
+    private Long activeUsers;
+}
@@ -0,0 +1,47 @@
+package com.turmericstore.dto;
+
+import com.turmericstore.util.PageCursor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+
+    @Builder.Default
+    private List<T> items = new ArrayList<>();
+
+    // Pass back as the cursor parameter to fetch the next page; null on the last page
+    private String nextCursor;
+
+    private Boolean hasMore;
+
+    private Integer size;
+
+    /**
+     * Builds a page from a repository slice fetched with one extra row; the extra row
+     * only signals that another page exists and is not returned.
+     */
+    public static <E, T> PageResponse<T> fromSlice(List<E> slice, int pageSize,
+                                                   Function<E, PageCursor> cursorOf,
+                                                   Function<List<E>, List<T>> mapper) {
+        boolean hasMore = slice.size() > pageSize;
+        List<E> page = hasMore ? slice.subList(0, pageSize) : slice;
+        String nextCursor = hasMore ? cursorOf.apply(page.get(page.size() - 1)).encode() : null;
+
+        return PageResponse.<T>builder()
+                .items(mapper.apply(page))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .size(page.size())
+                .build();
+    }
+}
@@ -34,6 +34,8 @@ public class ProductDTO {
     @Min(value = 0, message = "Stock must be greater than or equal to 0")
     private Integer stock;
 
+    private Integer stockShards;
+
     private String categoryId;
 
     private String unit;
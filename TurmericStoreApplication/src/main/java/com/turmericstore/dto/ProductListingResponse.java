@@ -0,0 +1,30 @@
+package com.turmericstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductListingResponse {
+
+    @Builder.Default
+    private List<ProductDTO> items = new ArrayList<>();
+
+    // Products matching the filters in total, for paging controls
+    private Integer total;
+
+    private Integer offset;
+
+    private Integer limit;
+
+    // Facet name to value counts, most frequent first; only when facet counts were requested
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,19 @@
+package com.turmericstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+
+    private String text;
+
+    private String type; // product, brand or category
+
+    private String id; // Product or category id; null for brands
+}
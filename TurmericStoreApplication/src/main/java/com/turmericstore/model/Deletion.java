@@ -0,0 +1,31 @@
+package com.turmericstore.model;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.DocumentId;
+import com.google.cloud.firestore.annotation.IgnoreExtraProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tombstone for a deleted catalog document, read by clients syncing catalog changes.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IgnoreExtraProperties
+public class Deletion {
+
+    @DocumentId
+    private String id;
+
+    private String entityType; // product or category
+
+    private String entityId;
+
+    private Long deletedAt;
+
+    private Timestamp expireAt; // Firestore TTL field; tombstones are purged after the retention period
+}
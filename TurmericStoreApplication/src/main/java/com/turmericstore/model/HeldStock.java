@@ -0,0 +1,45 @@
+package com.turmericstore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * The part of a stock hold charged against one document's stock: the product's, or for a
+ * sharded product one shard's. Kept in that document's heldStock map under the hold id, so a
+ * hold and a checkout competing for the same units always write the same document.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeldStock {
+
+    private Integer quantity;
+
+    private Long expiresAt; // Stops counting against stock at this time, deleted or not
+
+    public boolean isActive(long now) {
+        return expiresAt != null && expiresAt > now && quantity != null;
+    }
+
+    /**
+     * Quantity under the active holds in a heldStock map, leaving out one hold (e.g. the
+     * caller's own, which their order may take from); {@code excludedHoldId} may be null.
+     */
+    public static int sumActive(Map<String, HeldStock> heldStock, String excludedHoldId, long now) {
+        if (heldStock == null) {
+            return 0;
+        }
+        int held = 0;
+        for (Map.Entry<String, HeldStock> entry : heldStock.entrySet()) {
+            if (entry.getValue().isActive(now) && !entry.getKey().equals(excludedHoldId)) {
+                held += entry.getValue().getQuantity();
+            }
+        }
+        return held;
+    }
+}
@@ -0,0 +1,37 @@
+package com.turmericstore.model;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.DocumentId;
+import com.google.cloud.firestore.annotation.IgnoreExtraProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a request sent with an Idempotency-Key, replayed when the same request is retried.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IgnoreExtraProperties
+public class IdempotencyRecord {
+
+    @DocumentId
+    private String id;
+
+    private String requestHash; // Retries must send the same request as the original
+
+    private Boolean completed; // False while the original request is still running
+
+    private Long leaseUntil; // An unfinished claim can be taken over once this passes
+
+    private Integer responseStatus;
+
+    private String responseBody; // JSON
+
+    private Long createdAt;
+
+    private Timestamp expireAt; // Firestore TTL field; keys can be reused once it passes
+}
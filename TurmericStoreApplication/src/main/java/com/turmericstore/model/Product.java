@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,7 +30,13 @@ public class Product {
 
     private Double discountPrice;
 
-    private Integer stock;
+    private Integer stock; // For a sharded product, the shard total as last copied onto the product
+
+    private Integer stockShards; // Hot products only: stock is split across this many shard documents
+
+    // Cart holds on an unsharded product's stock, by hold id; a sharded product's are on its shards
+    @Builder.Default
+    private Map<String, HeldStock> heldStock = new HashMap<>();
 
     private String categoryId;
 
@@ -57,7 +64,8 @@ public class Product {
     private String country; // Country of origin
 
     public boolean isDiscounted() {
-        return discountPrice != null && discountPrice < price;
+        // A sparse fieldset may load the discount price without the price
+        return discountPrice != null && price != null && discountPrice < price;
     }
 
     public boolean isInStock() {
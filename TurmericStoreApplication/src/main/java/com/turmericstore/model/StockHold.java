@@ -0,0 +1,39 @@
+package com.turmericstore.model;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.DocumentId;
+import com.google.cloud.firestore.annotation.IgnoreExtraProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock set aside for a product in a user's cart until the hold expires or the user checks out.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IgnoreExtraProperties
+public class StockHold {
+
+    @DocumentId
+    private String id;
+
+    private String userId;
+
+    private String productId;
+
+    private Integer quantity;
+
+    private Long createdAt;
+
+    private Long expiresAt; // The hold stops counting against stock at this time
+
+    private Timestamp purgeAt; // Firestore TTL field; removes holds no instance was left to release
+
+    public boolean isActive(long now) {
+        return expiresAt != null && expiresAt > now;
+    }
+}
@@ -69,4 +69,10 @@ public class CartRepository {
         );
         future.get(); // Wait for the operation to complete
     }
-}
\ No newline at end of file
+
+    public long count() throws ExecutionException, InterruptedException {
+        // Aggregation query: billed per batch of index entries, no documents are downloaded
+        ApiFuture<AggregateQuerySnapshot> future = cartCollection.count().get();
+        return future.get().getCount();
+    }
+}
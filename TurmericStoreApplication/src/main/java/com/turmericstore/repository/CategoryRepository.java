@@ -4,10 +4,12 @@ import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
 import com.turmericstore.model.Category;
 import com.turmericstore.util.AppConstants;
+import com.turmericstore.util.ChangeCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
@@ -17,10 +19,12 @@ public class CategoryRepository {
 
     private final Firestore firestore;
     private final CollectionReference categoryCollection;
+    private final DeletionLogRepository deletionLogRepository;
 
     @Autowired
-    public CategoryRepository(Firestore firestore) {
+    public CategoryRepository(Firestore firestore, DeletionLogRepository deletionLogRepository) {
         this.firestore = firestore;
+        this.deletionLogRepository = deletionLogRepository;
         this.categoryCollection = firestore.collection(AppConstants.COLLECTION_CATEGORIES);
     }
 
@@ -62,6 +66,27 @@ public class CategoryRepository {
         }
     }
 
+    public List<Category> findByIds(Collection<String> ids) throws ExecutionException, InterruptedException {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // One batched read for all ids instead of a round trip per category
+        DocumentReference[] refs = ids.stream()
+                .map(categoryCollection::document)
+                .toArray(DocumentReference[]::new);
+        ApiFuture<List<DocumentSnapshot>> future = firestore.getAll(refs);
+
+        List<Category> categories = new ArrayList<>();
+        for (DocumentSnapshot document : future.get()) {
+            if (document.exists()) {
+                categories.add(document.toObject(Category.class));
+            }
+        }
+
+        return categories;
+    }
+
     public List<Category> findByParentId(String parentId) throws ExecutionException, InterruptedException {
         Query query;
 
@@ -106,8 +131,32 @@ public class CategoryRepository {
     }
 
     public void delete(String id) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = categoryCollection.document(id);
-        ApiFuture<WriteResult> future = docRef.delete();
-        future.get(); // Wait for the operation to complete
+        // The tombstone is committed with the delete, so syncing clients cannot miss it
+        WriteBatch batch = firestore.batch();
+        batch.delete(categoryCollection.document(id));
+        deletionLogRepository.recordDeletion(batch, DeletionLogRepository.CATEGORY, id);
+        batch.commit().get(); // Wait for the operation to complete
+    }
+
+    /**
+     * Categories changed after the cursor and no later than {@code upTo}, oldest change first.
+     */
+    public List<Category> findUpdatedAfter(ChangeCursor after, long upTo, int limit) throws ExecutionException, InterruptedException {
+        Query query = ChangeQueries.after(categoryCollection, "updatedAt", after, upTo, limit);
+        ApiFuture<QuerySnapshot> future = query.get();
+        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+
+        List<Category> categories = new ArrayList<>();
+        for (QueryDocumentSnapshot document : documents) {
+            categories.add(document.toObject(Category.class));
+        }
+
+        return categories;
+    }
+
+    public long count() throws ExecutionException, InterruptedException {
+        // Aggregation query: billed per batch of index entries, no documents are downloaded
+        ApiFuture<AggregateQuerySnapshot> future = categoryCollection.count().get();
+        return future.get().getCount();
     }
-}
\ No newline at end of file
+}
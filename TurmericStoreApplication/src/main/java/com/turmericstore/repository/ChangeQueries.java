@@ -0,0 +1,32 @@
+package com.turmericstore.repository;
+
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+import com.turmericstore.util.ChangeCursor;
+
+/**
+ * Keyset queries over a timestamp field, shared by the repositories that feed catalog sync.
+ */
+final class ChangeQueries {
+
+    private ChangeQueries() {
+    }
+
+    /**
+     * Documents with {@code field} after the cursor and at most {@code upTo}, ordered by (field, id).
+     * A null cursor starts from the beginning.
+     */
+    static Query after(Query collection, String field, ChangeCursor after, long upTo, int limit) {
+        Query query = collection.whereLessThanOrEqualTo(field, upTo);
+        if (after != null && after.getId() == null) {
+            query = query.whereGreaterThan(field, after.getTimestamp());
+        }
+        query = query.orderBy(field)
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        if (after != null && after.getId() != null) {
+            query = query.startAfter(after.getTimestamp(), after.getId());
+        }
+        return query;
+    }
+}
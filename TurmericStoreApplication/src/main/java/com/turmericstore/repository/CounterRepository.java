@@ -0,0 +1,180 @@
+package com.turmericstore.repository;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.*;
+import com.turmericstore.model.Order;
+import com.turmericstore.model.Product;
+import com.turmericstore.model.User;
+import com.turmericstore.util.AppConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Incrementally maintained counters, one per entity type. Repositories add the counter
+ * updates to the same batch or transaction that writes the entity, so the counts never
+ * drift from the data. Each update goes to one of SHARDS documents under the counter's own
+ * document, picked at random, so that every checkout adding to the orders counter does not
+ * queue on a single document; reads sum the counter document and its shards in one round trip.
+ */
+@Repository
+public class CounterRepository {
+
+    public static final String PRODUCTS = "products";
+    public static final String ORDERS = "orders";
+    public static final String USERS = "users";
+
+    // A document takes about one sustained write per second, so this bounds counted writes per second
+    private static final int SHARDS = 20;
+    private static final String SUBCOLLECTION_SHARDS = "shards";
+    private static final List<String> COUNTERS = List.of(PRODUCTS, ORDERS, USERS);
+
+    private final Firestore firestore;
+    private final CollectionReference counterCollection;
+
+    @Autowired
+    public CounterRepository(Firestore firestore) {
+        this.firestore = firestore;
+        this.counterCollection = firestore.collection(AppConstants.COLLECTION_COUNTERS);
+    }
+
+    /**
+     * Reads every counter in a single batched get, summing each counter's shards. Nested maps,
+     * such as counts by category, are summed key by key.
+     */
+    public Map<String, Map<String, Object>> findAll() throws ExecutionException, InterruptedException {
+        List<DocumentReference> refs = new ArrayList<>();
+        for (String counter : COUNTERS) {
+            refs.add(counterCollection.document(counter));
+            refs.addAll(shardRefs(counter));
+        }
+        ApiFuture<List<DocumentSnapshot>> future = firestore.getAll(refs.toArray(new DocumentReference[0]));
+
+        Map<String, Map<String, Object>> counters = new HashMap<>();
+        COUNTERS.forEach(counter -> counters.put(counter, new HashMap<>()));
+        for (DocumentSnapshot document : future.get()) {
+            if (document.exists()) {
+                // A shard's parent is the counter's shards collection, whose parent is the counter
+                String counter = document.getReference().getParent().getParent() != null
+                        ? document.getReference().getParent().getParent().getId()
+                        : document.getId();
+                addAll(counters.get(counter), document.getData());
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Overwrites all counters with freshly computed values, e.g. after a data import.
+     */
+    public void replaceAll(Map<String, Map<String, Object>> counters) throws ExecutionException, InterruptedException {
+        WriteBatch batch = firestore.batch();
+        counters.forEach((name, values) -> {
+            batch.set(counterCollection.document(name), values);
+            shardRefs(name).forEach(batch::delete);
+        });
+        batch.commit().get(); // Wait for the operation to complete
+    }
+
+    // before is null for a created entity, after is null for a deleted one
+    public void recordProductChange(UpdateBuilder<?> writer, Product before, Product after) {
+        Map<String, Object> updates = new HashMap<>();
+        addTotal(updates, before, after);
+
+        String oldCategory = before != null ? before.getCategoryId() : null;
+        String newCategory = after != null ? after.getCategoryId() : null;
+        if (!Objects.equals(oldCategory, newCategory)) {
+            Map<String, Object> byCategory = new HashMap<>();
+            if (oldCategory != null) {
+                byCategory.put(oldCategory, FieldValue.increment(-1));
+            }
+            if (newCategory != null) {
+                byCategory.put(newCategory, FieldValue.increment(1));
+            }
+            updates.put("byCategory", byCategory);
+        }
+
+        write(writer, PRODUCTS, updates);
+    }
+
+    public void recordOrderChange(UpdateBuilder<?> writer, Order before, Order after) {
+        Map<String, Object> updates = new HashMap<>();
+        addTotal(updates, before, after);
+
+        Order.OrderStatus oldStatus = before != null ? before.getStatus() : null;
+        Order.OrderStatus newStatus = after != null ? after.getStatus() : null;
+        if (oldStatus != newStatus) {
+            Map<String, Object> byStatus = new HashMap<>();
+            if (oldStatus != null) {
+                byStatus.put(oldStatus.name(), FieldValue.increment(-1));
+            }
+            if (newStatus != null) {
+                byStatus.put(newStatus.name(), FieldValue.increment(1));
+            }
+            updates.put("byStatus", byStatus);
+        }
+
+        write(writer, ORDERS, updates);
+    }
+
+    public void recordUserChange(UpdateBuilder<?> writer, User before, User after) {
+        Map<String, Object> updates = new HashMap<>();
+        addTotal(updates, before, after);
+
+        int activeDelta = (isActive(after) ? 1 : 0) - (isActive(before) ? 1 : 0);
+        if (activeDelta != 0) {
+            updates.put("active", FieldValue.increment(activeDelta));
+        }
+
+        write(writer, USERS, updates);
+    }
+
+    // Helper methods
+    private static void addTotal(Map<String, Object> updates, Object before, Object after) {
+        if (before == null && after != null) {
+            updates.put("total", FieldValue.increment(1));
+        } else if (before != null && after == null) {
+            updates.put("total", FieldValue.increment(-1));
+        }
+    }
+
+    private static boolean isActive(User user) {
+        return user != null && Boolean.TRUE.equals(user.getActive());
+    }
+
+    private void write(UpdateBuilder<?> writer, String counter, Map<String, Object> updates) {
+        if (!updates.isEmpty()) {
+            DocumentReference shardRef = shardRefs(counter).get(ThreadLocalRandom.current().nextInt(SHARDS));
+            // Merge so the document is created on first use and nested maps are merged field by field
+            writer.set(shardRef, updates, SetOptions.merge());
+        }
+    }
+
+    private List<DocumentReference> shardRefs(String counter) {
+        CollectionReference shards = counterCollection.document(counter).collection(SUBCOLLECTION_SHARDS);
+        List<DocumentReference> refs = new ArrayList<>(SHARDS);
+        for (int index = 0; index < SHARDS; index++) {
+            refs.add(shards.document(String.valueOf(index)));
+        }
+        return refs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addAll(Map<String, Object> sums, Map<String, Object> values) {
+        values.forEach((field, value) -> {
+            if (value instanceof Number number) {
+                sums.merge(field, number.longValue(), (a, b) -> (Long) a + (Long) b);
+            } else if (value instanceof Map<?, ?> nested) {
+                Map<String, Object> nestedSums = (Map<String, Object>) sums.computeIfAbsent(field, key -> new HashMap<>());
+                addAll(nestedSums, (Map<String, Object>) nested);
+            }
+        });
+    }
+}
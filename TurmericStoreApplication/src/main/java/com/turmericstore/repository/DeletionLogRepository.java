@@ -0,0 +1,64 @@
+package com.turmericstore.repository;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import com.turmericstore.model.Deletion;
+import com.turmericstore.util.AppConstants;
+import com.turmericstore.util.ChangeCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tombstones for deleted products and categories, so syncing clients learn about deletions.
+ * Repositories write the tombstone in the same batch or transaction as the delete.
+ * A Firestore TTL policy on {@code expireAt} purges tombstones after the retention period;
+ * clients whose sync token is older than that must reload the catalog.
+ */
+@Repository
+public class DeletionLogRepository {
+
+    public static final String PRODUCT = "product";
+    public static final String CATEGORY = "category";
+    public static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private final CollectionReference deletionCollection;
+
+    @Autowired
+    public DeletionLogRepository(Firestore firestore) {
+        this.deletionCollection = firestore.collection(AppConstants.COLLECTION_DELETIONS);
+    }
+
+    public void recordDeletion(UpdateBuilder<?> writer, String entityType, String entityId) {
+        long deletedAt = System.currentTimeMillis();
+        Deletion deletion = Deletion.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .deletedAt(deletedAt)
+                .expireAt(Timestamp.ofTimeMicroseconds(TimeUnit.MILLISECONDS.toMicros(deletedAt + RETENTION_MILLIS)))
+                .build();
+        // One tombstone per entity; deleting again just refreshes it
+        writer.set(deletionCollection.document(entityType + "_" + entityId), deletion);
+    }
+
+    /**
+     * Tombstones after the cursor and no later than {@code upTo}, oldest first.
+     */
+    public List<Deletion> findAfter(ChangeCursor after, long upTo, int limit) throws ExecutionException, InterruptedException {
+        Query query = ChangeQueries.after(deletionCollection, "deletedAt", after, upTo, limit);
+        ApiFuture<QuerySnapshot> future = query.get();
+        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+
+        List<Deletion> deletions = new ArrayList<>();
+        for (QueryDocumentSnapshot document : documents) {
+            deletions.add(document.toObject(Deletion.class));
+        }
+
+        return deletions;
+    }
+}
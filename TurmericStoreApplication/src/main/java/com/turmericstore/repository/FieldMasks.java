@@ -0,0 +1,33 @@
+package com.turmericstore.repository;
+
+import com.google.cloud.firestore.annotation.DocumentId;
+import com.google.cloud.firestore.annotation.Exclude;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Top-level fields an entity class is stored as, for writes that must leave some of them alone.
+ */
+final class FieldMasks {
+
+    private FieldMasks() {
+    }
+
+    static List<String> fieldsExcept(Class<?> type, String... excluded) {
+        Set<String> skipped = Set.of(excluded);
+        List<String> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                    || field.isAnnotationPresent(DocumentId.class) || field.isAnnotationPresent(Exclude.class)
+                    || skipped.contains(field.getName())) {
+                continue;
+            }
+            fields.add(field.getName());
+        }
+        return fields;
+    }
+}
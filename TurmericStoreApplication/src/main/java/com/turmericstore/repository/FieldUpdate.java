@@ -0,0 +1,40 @@
+package com.turmericstore.repository;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.UpdateBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fields and values of one document update, addressed by FieldPath so that map keys
+ * built from ids, like the hold ids in heldStock, are never split on dots.
+ */
+final class FieldUpdate {
+
+    private final List<Object> fieldsAndValues = new ArrayList<>();
+
+    FieldUpdate put(String field, Object value) {
+        return put(FieldPath.of(field), value);
+    }
+
+    FieldUpdate put(FieldPath field, Object value) {
+        fieldsAndValues.add(field);
+        fieldsAndValues.add(value);
+        return this;
+    }
+
+    boolean isEmpty() {
+        return fieldsAndValues.isEmpty();
+    }
+
+    /**
+     * Adds the update to a batch or transaction; there must be at least one field.
+     */
+    <T> T applyTo(UpdateBuilder<T> writer, DocumentReference docRef, Precondition precondition) {
+        Object[] more = fieldsAndValues.subList(2, fieldsAndValues.size()).toArray();
+        return writer.update(docRef, precondition, (FieldPath) fieldsAndValues.get(0), fieldsAndValues.get(1), more);
+    }
+}
@@ -0,0 +1,69 @@
+package com.turmericstore.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import com.turmericstore.model.IdempotencyRecord;
+import com.turmericstore.util.AppConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Dedupe table for requests sent with an Idempotency-Key. A TTL policy on {@code expireAt}
+ * purges old keys; until it runs, an expired key is treated as unused.
+ */
+@Repository
+public class IdempotencyRepository {
+
+    private final Firestore firestore;
+    private final CollectionReference keyCollection;
+
+    @Autowired
+    public IdempotencyRepository(Firestore firestore) {
+        this.firestore = firestore;
+        this.keyCollection = firestore.collection(AppConstants.COLLECTION_IDEMPOTENCY_KEYS);
+    }
+
+    /**
+     * Records the key as in progress unless it is already in use. A claim whose request never
+     * finished is taken over once its lease has passed, e.g. after the instance running it died.
+     *
+     * @return empty if the caller now owns the key, otherwise the record already stored for it
+     */
+    public Optional<IdempotencyRecord> claim(IdempotencyRecord record) throws ExecutionException, InterruptedException {
+        DocumentReference docRef = keyCollection.document(record.getId());
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(docRef).get();
+            if (existing.exists()) {
+                IdempotencyRecord stored = existing.toObject(IdempotencyRecord.class);
+                if (stored.getExpireAt() != null && stored.getExpireAt().compareTo(Timestamp.now()) > 0
+                        && (Boolean.TRUE.equals(stored.getCompleted()) || isLeased(stored))) {
+                    return Optional.of(stored);
+                }
+            }
+            transaction.set(docRef, record);
+            return Optional.<IdempotencyRecord>empty();
+        }).get();
+    }
+
+    public void complete(String id, int responseStatus, String responseBody) throws ExecutionException, InterruptedException {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("completed", true);
+        updates.put("responseStatus", responseStatus);
+        updates.put("responseBody", responseBody);
+        keyCollection.document(id).update(updates).get(); // Wait for the operation to complete
+    }
+
+    public void delete(String id) throws ExecutionException, InterruptedException {
+        keyCollection.document(id).delete().get(); // Wait for the operation to complete
+    }
+
+    // Helper methods
+    private static boolean isLeased(IdempotencyRecord record) {
+        return record.getLeaseUntil() != null && record.getLeaseUntil() > System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,23 @@
+package com.turmericstore.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Outcome of a batched lookup by id. Found entities keep the order of the requested ids;
+ * ids with no matching document are reported instead of being silently dropped.
+ */
+@Data
+@AllArgsConstructor
+public class MultiGetResult<T> {
+
+    private List<T> found;
+
+    private List<String> missingIds;
+
+    public boolean isComplete() {
+        return missingIds.isEmpty();
+    }
+}
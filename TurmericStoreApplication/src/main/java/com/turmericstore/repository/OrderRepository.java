@@ -1,27 +1,40 @@
 package com.turmericstore.repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
 import com.google.cloud.firestore.*;
 import com.turmericstore.model.Order;
 import com.turmericstore.util.AppConstants;
+import com.turmericstore.util.PageCursor;
+import io.grpc.Status;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 @Repository
 public class OrderRepository {
 
+    // Every stored field except the ones the counters track
+    private static final SetOptions UNCOUNTED_FIELDS = SetOptions.mergeFields(FieldMasks.fieldsExcept(Order.class, "status"));
+
     private final Firestore firestore;
     private final CollectionReference orderCollection;
+    private final CollectionReference orderNumberCollection;
+    private final CounterRepository counterRepository;
 
     @Autowired
-    public OrderRepository(Firestore firestore) {
+    public OrderRepository(Firestore firestore, CounterRepository counterRepository) {
         this.firestore = firestore;
+        this.counterRepository = counterRepository;
         this.orderCollection = firestore.collection(AppConstants.COLLECTION_ORDERS);
+        this.orderNumberCollection = firestore.collection(AppConstants.COLLECTION_ORDER_NUMBERS);
     }
 
     public List<Order> findAll() throws ExecutionException, InterruptedException {
@@ -36,6 +49,30 @@ public class OrderRepository {
         return orders;
     }
 
+    public List<Order> findPage(PageCursor after, int limit, String... fields) throws ExecutionException, InterruptedException {
+        // Keyset pagination: startAfter costs the same on every page, unlike offset()
+        Query query = orderCollection.orderBy("createdAt", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(limit);
+        if (after != null) {
+            query = query.startAfter(after.getCreatedAt(), after.getId());
+        }
+        if (fields.length > 0) {
+            // Only the requested fields come back from Firestore
+            query = query.select(fields);
+        }
+
+        ApiFuture<QuerySnapshot> future = query.get();
+        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+
+        List<Order> orders = new ArrayList<>();
+        for (QueryDocumentSnapshot document : documents) {
+            orders.add(document.toObject(Order.class));
+        }
+
+        return orders;
+    }
+
     public Optional<Order> findById(String id) throws ExecutionException, InterruptedException {
         DocumentReference docRef = orderCollection.document(id);
         ApiFuture<DocumentSnapshot> future = docRef.get();
@@ -62,8 +99,19 @@ public class OrderRepository {
         return orders;
     }
 
+    /**
+     * Looks the order up through its orderNumbers document, keyed by the number, so this is two
+     * document gets rather than a query. Orders placed before those documents existed are found
+     * with the query instead.
+     */
     public Optional<Order> findByOrderNumber(String orderNumber) throws ExecutionException, InterruptedException {
-        Query query = orderCollection.whereEqualTo("orderNumber", orderNumber);
+        DocumentSnapshot mapping = orderNumberCollection.document(orderNumber).get().get();
+        String orderId = mapping.exists() ? mapping.getString("orderId") : null;
+        if (orderId != null) {
+            return findById(orderId);
+        }
+
+        Query query = orderCollection.whereEqualTo("orderNumber", orderNumber).limit(1);
         ApiFuture<QuerySnapshot> future = query.get();
         List<QueryDocumentSnapshot> documents = future.get().getDocuments();
 
@@ -89,7 +137,8 @@ public class OrderRepository {
     }
 
     public Order save(Order order) throws ExecutionException, InterruptedException {
-        if (order.getId() == null) {
+        boolean isNew = order.getId() == null;
+        if (isNew) {
             // Create a new document with auto-generated ID
             DocumentReference docRef = orderCollection.document();
             order.setId(docRef.getId());
@@ -102,21 +151,72 @@ public class OrderRepository {
         }
         order.setUpdatedAt(currentTime);
 
-        // Save to Firestore
+        // Save to Firestore, updating the counters in the same write
         DocumentReference docRef = orderCollection.document(order.getId());
-        ApiFuture<WriteResult> future = docRef.set(order);
-        future.get(); // Wait for the operation to complete
+        if (isNew) {
+            WriteBatch batch = firestore.batch();
+            batch.create(docRef, order);
+            if (order.getOrderNumber() != null) {
+                batch.create(orderNumberCollection.document(order.getOrderNumber()), Map.of("orderId", order.getId()));
+            }
+            counterRepository.recordOrderChange(batch, null, order);
+            batch.commit().get(); // Wait for the operation to complete
+        } else {
+            // The counted status is left to updateStatus, so an ordinary update needs no read
+            docRef.set(order, UNCOUNTED_FIELDS).get(); // Wait for the operation to complete
+        }
 
         return order;
     }
 
+    /**
+     * Creates a new order together with other writes (e.g. stock reservations) in a single
+     * commit, along with the document mapping its order number to its id. Returns false, with
+     * nothing written, when a precondition of those writes fails or the order number is taken.
+     */
+    public boolean create(Order order, Consumer<WriteBatch> sameCommit) throws ExecutionException, InterruptedException {
+        if (order.getId() == null) {
+            order.setId(orderCollection.document().getId());
+        }
+        long currentTime = System.currentTimeMillis();
+        if (order.getCreatedAt() == null) {
+            order.setCreatedAt(currentTime);
+        }
+        order.setUpdatedAt(currentTime);
+
+        WriteBatch batch = firestore.batch();
+        batch.create(orderCollection.document(order.getId()), order);
+        batch.create(orderNumberCollection.document(order.getOrderNumber()), Map.of("orderId", order.getId()));
+        counterRepository.recordOrderChange(batch, null, order);
+        sameCommit.accept(batch);
+        try {
+            batch.commit().get(); // One round trip however many writes the batch holds
+            return true;
+        } catch (ExecutionException e) {
+            if (isFailedPrecondition(e.getCause()) || isAlreadyExists(e.getCause())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
     public void updateStatus(String id, Order.OrderStatus status) throws ExecutionException, InterruptedException {
         DocumentReference docRef = orderCollection.document(id);
-        ApiFuture<WriteResult> future = docRef.update(
-                "status", status,
-                "updatedAt", System.currentTimeMillis()
-        );
-        future.get(); // Wait for the operation to complete
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(docRef).get();
+            if (!existing.exists()) {
+                return null;
+            }
+            Order before = existing.toObject(Order.class);
+            transaction.update(docRef,
+                    "status", status,
+                    "updatedAt", System.currentTimeMillis()
+            );
+            Order after = existing.toObject(Order.class);
+            after.setStatus(status);
+            counterRepository.recordOrderChange(transaction, before, after);
+            return null;
+        }).get(); // Wait for the operation to complete
     }
 
     public void updatePaymentStatus(String id, Order.PaymentStatus paymentStatus) throws ExecutionException, InterruptedException {
@@ -128,6 +228,17 @@ public class OrderRepository {
         future.get(); // Wait for the operation to complete
     }
 
+    public long count() throws ExecutionException, InterruptedException {
+        // Aggregation query: billed per batch of index entries, no documents are downloaded
+        ApiFuture<AggregateQuerySnapshot> future = orderCollection.count().get();
+        return future.get().getCount();
+    }
+
+    public long countByStatus(Order.OrderStatus status) throws ExecutionException, InterruptedException {
+        ApiFuture<AggregateQuerySnapshot> future = orderCollection.whereEqualTo("status", status).count().get();
+        return future.get().getCount();
+    }
+
     public List<Order> findRecentOrders(int limit) throws ExecutionException, InterruptedException {
         Query query = orderCollection.orderBy("createdAt", Query.Direction.DESCENDING)
                 .limit(limit);
@@ -141,4 +252,25 @@ public class OrderRepository {
 
         return orders;
     }
+
+    // Helper methods
+    private static boolean isFailedPrecondition(Throwable error) {
+        if (error instanceof ApiException apiException) {
+            return apiException.getStatusCode().getCode() == StatusCode.Code.FAILED_PRECONDITION;
+        }
+        if (error instanceof FirestoreException firestoreException) {
+            return firestoreException.getStatus().getCode() == Status.Code.FAILED_PRECONDITION;
+        }
+        return false;
+    }
+
+    private static boolean isAlreadyExists(Throwable error) {
+        if (error instanceof ApiException apiException) {
+            return apiException.getStatusCode().getCode() == StatusCode.Code.ALREADY_EXISTS;
+        }
+        if (error instanceof FirestoreException firestoreException) {
+            return firestoreException.getStatus().getCode() == Status.Code.ALREADY_EXISTS;
+        }
+        return false;
+    }
 }
@@ -1,26 +1,42 @@
 package com.turmericstore.repository;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.firestore.*;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.turmericstore.model.Product;
 import com.turmericstore.util.AppConstants;
+import com.turmericstore.util.ChangeCursor;
+import com.turmericstore.util.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 @Repository
 public class ProductRepository {
 
+    // Keys per getAll call; chunks are fetched concurrently
+    private static final int MULTI_GET_CHUNK_SIZE = 100;
+
     private final Firestore firestore;
     private final CollectionReference productCollection;
+    private final CounterRepository counterRepository;
+    private final DeletionLogRepository deletionLogRepository;
 
     @Autowired
-    public ProductRepository(Firestore firestore) {
+    public ProductRepository(Firestore firestore, CounterRepository counterRepository,
+                             DeletionLogRepository deletionLogRepository) {
         this.firestore = firestore;
+        this.counterRepository = counterRepository;
+        this.deletionLogRepository = deletionLogRepository;
         this.productCollection = firestore.collection(AppConstants.COLLECTION_PRODUCTS);
     }
 
@@ -75,59 +91,84 @@ public class ProductRepository {
         return products;
     }
 
-    public List<Product> search(String keyword) throws ExecutionException, InterruptedException {
-        // Basic search implementation - in a real app you might want to use Firestore's
-        // array-contains or array-contains-any for better search capabilities
-        String lowercaseKeyword = keyword.toLowerCase();
+    public List<Product> findByIds(List<String> ids) throws ExecutionException, InterruptedException {
+        return findAllByIds(ids).getFound();
+    }
 
-        // Get all products (this could be paginated in a real app)
-        ApiFuture<QuerySnapshot> future = productCollection.get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+    /**
+     * Looks up products by id in parallel batched reads. Results follow the order of the
+     * requested ids (duplicates collapsed) and ids without a document are reported as missing.
+     */
+    public MultiGetResult<Product> findAllByIds(List<String> ids) throws ExecutionException, InterruptedException {
+        return getAll(ids, document -> document.toObject(Product.class));
+    }
 
-        List<Product> matchingProducts = new ArrayList<>();
-        for (QueryDocumentSnapshot document : documents) {
-            Product product = document.toObject(Product.class);
-            // Check if keyword is in name or description
-            if (product.getName().toLowerCase().contains(lowercaseKeyword) ||
-                    (product.getDescription() != null && product.getDescription().toLowerCase().contains(lowercaseKeyword))) {
-                matchingProducts.add(product);
-            }
-        }
+    /**
+     * Same lookup as {@link #findAllByIds(List)}, keeping each document's update time for
+     * writes that must not overwrite a newer version.
+     */
+    public MultiGetResult<VersionedProduct> findVersionedByIds(List<String> ids) throws ExecutionException, InterruptedException {
+        return getAll(ids, document -> new VersionedProduct(document.toObject(Product.class), document.getUpdateTime()));
+    }
 
-        return matchingProducts;
+    /**
+     * Adds a stock decrement to the batch. It is applied server side with an increment, and only
+     * if the product is unchanged since it was read, so the stock checked is the stock reduced.
+     * The given hold, the buyer's own, comes off the product's heldStock in the same write.
+     */
+    public void reserveStock(WriteBatch batch, VersionedProduct product, int quantity, String consumedHoldId) {
+        long now = System.currentTimeMillis();
+        FieldUpdate update = new FieldUpdate()
+                .put("stock", FieldValue.increment(-quantity))
+                .put("updatedAt", now);
+        StockHoldRepository.putHeld(update, product.getProduct().getHeldStock(), consumedHoldId, null, now);
+        update.applyTo(batch, productCollection.document(product.getProduct().getId()),
+                Precondition.updatedAt(product.getUpdateTime()));
     }
 
-    public List<Product> findByIds(List<String> ids) throws ExecutionException, InterruptedException {
-        if (ids.isEmpty()) {
-            return new ArrayList<>();
+    private <T> MultiGetResult<T> getAll(List<String> ids, Function<DocumentSnapshot, T> mapper)
+            throws ExecutionException, InterruptedException {
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (uniqueIds.isEmpty()) {
+            return new MultiGetResult<>(new ArrayList<>(), new ArrayList<>());
         }
 
-        List<Product> products = new ArrayList<>();
-
-        // Firestore doesn't support 'in' queries with more than 10 values
-        // So we need to batch the requests
-        List<List<String>> batchedIds = new ArrayList<>();
-        int batchSize = 10;
-
-        for (int i = 0; i < ids.size(); i += batchSize) {
-            batchedIds.add(ids.subList(i, Math.min(i + batchSize, ids.size())));
+        // Issue every chunk before waiting on any, so latency is one round trip however many ids there are
+        List<ApiFuture<List<DocumentSnapshot>>> futures = new ArrayList<>();
+        for (int i = 0; i < uniqueIds.size(); i += MULTI_GET_CHUNK_SIZE) {
+            DocumentReference[] refs = uniqueIds.subList(i, Math.min(i + MULTI_GET_CHUNK_SIZE, uniqueIds.size()))
+                    .stream()
+                    .map(productCollection::document)
+                    .toArray(DocumentReference[]::new);
+            futures.add(firestore.getAll(refs));
         }
 
-        for (List<String> batch : batchedIds) {
-            Query query = productCollection.whereIn(FieldPath.documentId(), batch);
-            ApiFuture<QuerySnapshot> future = query.get();
-            List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+        Map<String, T> byId = new HashMap<>();
+        for (List<DocumentSnapshot> documents : ApiFutures.allAsList(futures).get()) {
+            for (DocumentSnapshot document : documents) {
+                if (document.exists()) {
+                    byId.put(document.getId(), mapper.apply(document));
+                }
+            }
+        }
 
-            for (QueryDocumentSnapshot document : documents) {
-                products.add(document.toObject(Product.class));
+        List<T> found = new ArrayList<>(byId.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : uniqueIds) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                found.add(entity);
+            } else {
+                missingIds.add(id);
             }
         }
 
-        return products;
+        return new MultiGetResult<>(found, missingIds);
     }
 
     public Product save(Product product) throws ExecutionException, InterruptedException {
-        if (product.getId() == null) {
+        boolean isNew = product.getId() == null;
+        if (isNew) {
             // Create a new document with auto-generated ID
             DocumentReference docRef = productCollection.document();
             product.setId(docRef.getId());
@@ -140,25 +181,63 @@ public class ProductRepository {
         }
         product.setUpdatedAt(currentTime);
 
-        // Save to Firestore
+        // Save to Firestore, updating the counters in the same write
         DocumentReference docRef = productCollection.document(product.getId());
-        ApiFuture<WriteResult> future = docRef.set(product);
-        future.get(); // Wait for the operation to complete
+        if (isNew) {
+            WriteBatch batch = firestore.batch();
+            batch.create(docRef, product);
+            counterRepository.recordProductChange(batch, null, product);
+            batch.commit().get(); // Wait for the operation to complete
+        } else {
+            // Unlike users and orders, an update needs the stored product for the fields kept below,
+            // so the category counts are diffed from the same read
+            firestore.runTransaction(transaction -> {
+                DocumentSnapshot existing = transaction.get(docRef).get();
+                Product before = existing.exists() ? existing.toObject(Product.class) : null;
+                if (before != null) {
+                    // Sharding is only changed through StockShardRepository.configure, which moves the
+                    // stock with it, and cart holds are charged by StockHoldRepository; an edit keeps
+                    // both as stored, along with a sharded product's stock, which mirrors its shards
+                    product.setStockShards(before.getStockShards());
+                    product.setHeldStock(before.getHeldStock());
+                    if (before.getStockShards() != null && before.getStockShards() > 0) {
+                        product.setStock(before.getStock());
+                    }
+                }
+                transaction.set(docRef, product);
+                counterRepository.recordProductChange(transaction, before, product);
+                return null;
+            }).get();
+        }
 
         return product;
     }
 
     public void delete(String id) throws ExecutionException, InterruptedException {
         DocumentReference docRef = productCollection.document(id);
-        ApiFuture<WriteResult> future = docRef.delete();
-        future.get(); // Wait for the operation to complete
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(docRef).get();
+            if (existing.exists()) {
+                transaction.delete(docRef);
+                counterRepository.recordProductChange(transaction, existing.toObject(Product.class), null);
+                deletionLogRepository.recordDeletion(transaction, DeletionLogRepository.PRODUCT, id);
+            }
+            return null;
+        }).get(); // Wait for the operation to complete
     }
 
-    public List<Product> findAllPaginated(int page, int size) throws ExecutionException, InterruptedException {
-        // Pagination in Firestore requires a consistent ordering
+    public List<Product> findPage(PageCursor after, int limit, String... fields) throws ExecutionException, InterruptedException {
+        // Keyset pagination: startAfter costs the same on every page, unlike offset()
         Query query = productCollection.orderBy("createdAt", Query.Direction.DESCENDING)
-                .offset(page * size)
-                .limit(size);
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(limit);
+        if (after != null) {
+            query = query.startAfter(after.getCreatedAt(), after.getId());
+        }
+        if (fields.length > 0) {
+            // Only the requested fields come back from Firestore
+            query = query.select(fields);
+        }
 
         ApiFuture<QuerySnapshot> future = query.get();
         List<QueryDocumentSnapshot> documents = future.get().getDocuments();
@@ -171,8 +250,49 @@ public class ProductRepository {
         return products;
     }
 
+    /**
+     * Products changed after the cursor and no later than {@code upTo}, oldest change first.
+     */
+    public List<Product> findUpdatedAfter(ChangeCursor after, long upTo, int limit) throws ExecutionException, InterruptedException {
+        Query query = ChangeQueries.after(productCollection, "updatedAt", after, upTo, limit);
+        ApiFuture<QuerySnapshot> future = query.get();
+        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+
+        List<Product> products = new ArrayList<>();
+        for (QueryDocumentSnapshot document : documents) {
+            products.add(document.toObject(Product.class));
+        }
+
+        return products;
+    }
+
+    /**
+     * Starts reading the next batch of products in document id order. Returns the pending
+     * future so a caller streaming the catalog can fetch one batch while writing the previous.
+     */
+    public ApiFuture<List<Product>> findBatchAfter(String afterId, int limit) {
+        Query query = productCollection.orderBy(FieldPath.documentId()).limit(limit);
+        if (afterId != null) {
+            query = query.startAfter(afterId);
+        }
+
+        return ApiFutures.transform(query.get(), snapshot -> {
+            List<Product> products = new ArrayList<>();
+            for (QueryDocumentSnapshot document : snapshot.getDocuments()) {
+                products.add(document.toObject(Product.class));
+            }
+            return products;
+        }, MoreExecutors.directExecutor());
+    }
+
     public long count() throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = productCollection.get();
-        return future.get().size();
+        // Aggregation query: billed per batch of index entries, no documents are downloaded
+        ApiFuture<AggregateQuerySnapshot> future = productCollection.count().get();
+        return future.get().getCount();
+    }
+
+    public long countByCategoryId(String categoryId) throws ExecutionException, InterruptedException {
+        ApiFuture<AggregateQuerySnapshot> future = productCollection.whereEqualTo("categoryId", categoryId).count().get();
+        return future.get().getCount();
     }
 }
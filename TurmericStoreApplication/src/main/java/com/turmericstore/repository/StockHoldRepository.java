@@ -0,0 +1,323 @@
+package com.turmericstore.repository;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import com.turmericstore.model.HeldStock;
+import com.turmericstore.model.StockHold;
+import com.turmericstore.util.AppConstants;
+import io.grpc.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock holds, one document per user and product, each also charged in the heldStock map
+ * of the document whose stock it holds: the product, or one or more shards of a sharded
+ * product. Availability is read from those maps rather than by querying holds. A hold only
+ * counts against stock until its expiresAt, so correctness never depends on a hold being
+ * deleted on time; lapsed entries are dropped whenever their document is next written.
+ */
+@Repository
+public class StockHoldRepository {
+
+    public static final String HELD_STOCK = "heldStock";
+
+    // Lapsed holds that no instance released are purged by a TTL policy on purgeAt
+    private static final long PURGE_DELAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // A hold whose shards were taken by others between choosing and charging them chooses again
+    private static final int HOLD_ATTEMPTS = 3;
+
+    private final Firestore firestore;
+    private final CollectionReference holdCollection;
+    private final CollectionReference productCollection;
+    private final StockShardRepository stockShardRepository;
+
+    @Autowired
+    public StockHoldRepository(Firestore firestore, StockShardRepository stockShardRepository) {
+        this.firestore = firestore;
+        this.stockShardRepository = stockShardRepository;
+        this.holdCollection = firestore.collection(AppConstants.COLLECTION_STOCK_HOLDS);
+        this.productCollection = firestore.collection(AppConstants.COLLECTION_PRODUCTS);
+    }
+
+    public static String holdId(String userId, String productId) {
+        return userId + "_" + productId;
+    }
+
+    /**
+     * Creates or replaces the user's hold on a product if the stock not held by anyone else
+     * covers it. The check and the write are one transaction over the document(s) the hold is
+     * charged to, so two carts cannot both hold the last units, and a checkout that read one
+     * of those documents before the hold fails its precondition instead of selling the units.
+     * A sharded product's hold is charged to as few shards as cover it, chosen from a read
+     * outside the transaction, and only those shards are read and written.
+     *
+     * @return the stock available to the user, held or not, or null if the product does not exist;
+     * the hold is only written when this is at least its quantity
+     */
+    public Integer hold(StockHold hold) throws ExecutionException, InterruptedException {
+        String id = holdId(hold.getUserId(), hold.getProductId());
+        hold.setId(id);
+        hold.setPurgeAt(Timestamp.ofTimeMicroseconds(
+                TimeUnit.MILLISECONDS.toMicros(hold.getExpiresAt() + PURGE_DELAY_MILLIS)));
+
+        DocumentReference productRef = productCollection.document(hold.getProductId());
+        Integer available = null;
+        for (int attempt = 0; attempt < HOLD_ATTEMPTS; attempt++) {
+            DocumentSnapshot product = productRef.get().get();
+            if (!product.exists()) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            int shardCount = shardCount(product);
+            List<StockShard> shards = shardCount > 0
+                    ? stockShardRepository.findShards(Map.of(hold.getProductId(), shardCount)).get(hold.getProductId())
+                    : List.of();
+            List<Integer> chosen = chooseShards(shards, id, hold.getQuantity(), now);
+
+            available = firestore.runTransaction(transaction -> holdIn(transaction, hold, shardCount, chosen)).get();
+            if (available == null || available >= hold.getQuantity()) {
+                return available;
+            }
+            int free = shardCount > 0
+                    ? shards.stream().mapToInt(shard -> Math.max(0, shard.freeStock(id, now))).sum()
+                    : 0;
+            if (free < hold.getQuantity()) {
+                // Short on the whole product, not just on the shards chosen
+                return available;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Releases the user's hold on a product: the hold and its entries in heldStock go in one batch.
+     */
+    public void release(String userId, String productId) throws ExecutionException, InterruptedException {
+        String id = holdId(userId, productId);
+        WriteBatch batch = firestore.batch();
+        batch.delete(holdCollection.document(id));
+
+        DocumentSnapshot product = productCollection.document(productId).get().get();
+        int shardCount = shardCount(product);
+        if (shardCount > 0) {
+            for (StockShard shard : stockShardRepository.findShards(Map.of(productId, shardCount)).get(productId)) {
+                if (shard.getHeldStock().containsKey(id)) {
+                    stockShardRepository.release(batch, shard, id);
+                }
+            }
+        } else if (readHeld(product).containsKey(id)) {
+            // Giving held stock back never oversells, so it needs no precondition
+            batch.update(product.getReference(), FieldPath.of(HELD_STOCK, id), FieldValue.delete());
+        }
+        batch.commit().get(); // Wait for the operation to complete
+    }
+
+    /**
+     * Reads one page of holds, by document id, with only the fields needed to schedule their expiry.
+     */
+    public List<StockHold> findExpiryPage(String afterId, int limit) throws ExecutionException, InterruptedException {
+        Query query = holdCollection.orderBy(FieldPath.documentId())
+                .select("expiresAt")
+                .limit(limit);
+        if (afterId != null) {
+            query = query.startAfter(afterId);
+        }
+
+        List<StockHold> holds = new ArrayList<>();
+        for (QueryDocumentSnapshot document : query.get().get().getDocuments()) {
+            holds.add(document.toObject(StockHold.class));
+        }
+        return holds;
+    }
+
+    public List<StockHold> findByUserId(String userId) throws ExecutionException, InterruptedException {
+        ApiFuture<QuerySnapshot> future = holdCollection.whereEqualTo("userId", userId).get();
+        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+
+        List<StockHold> holds = new ArrayList<>();
+        for (QueryDocumentSnapshot document : documents) {
+            holds.add(document.toObject(StockHold.class));
+        }
+
+        return holds;
+    }
+
+    /**
+     * Adds the deletion of a hold to a batch, e.g. the one that places the order it was for.
+     */
+    public void delete(WriteBatch batch, String id) {
+        batch.delete(holdCollection.document(id));
+    }
+
+    /**
+     * Deletes those of the given holds that have lapsed: one batched read, then deletes sent
+     * through a BulkWriter. Each delete only applies if its hold is unchanged since the read,
+     * so a hold renewed in the meantime is left alone. Their lapsed heldStock entries no longer
+     * count and are dropped by the next write to their document.
+     */
+    public void deleteExpired(Collection<String> ids) throws ExecutionException, InterruptedException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        DocumentReference[] refs = ids.stream()
+                .distinct()
+                .map(holdCollection::document)
+                .toArray(DocumentReference[]::new);
+
+        long now = System.currentTimeMillis();
+        List<ApiFuture<WriteResult>> deletes = new ArrayList<>();
+        BulkWriter writer = firestore.bulkWriter();
+        try {
+            for (DocumentSnapshot document : firestore.getAll(refs).get()) {
+                if (document.exists() && !document.toObject(StockHold.class).isActive(now)) {
+                    deletes.add(writer.delete(document.getReference(), Precondition.updatedAt(document.getUpdateTime())));
+                }
+            }
+        } finally {
+            writer.close(); // Sends what is queued and waits for it
+        }
+
+        for (ApiFuture<WriteResult> delete : deletes) {
+            try {
+                delete.get();
+            } catch (ExecutionException e) {
+                // A failed precondition means the hold was renewed, which is the point of it
+                if (!(e.getCause() instanceof BulkWriterException failure)
+                        || failure.getStatus().getCode() != Status.Code.FAILED_PRECONDITION) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a product or shard document's heldStock map; empty if it has none.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, HeldStock> readHeld(DocumentSnapshot document) {
+        Map<String, HeldStock> heldStock = new HashMap<>();
+        Object value = document.exists() ? document.get(HELD_STOCK) : null;
+        if (value instanceof Map<?, ?> entries) {
+            ((Map<String, Object>) entries).forEach((holdId, entry) -> {
+                if (entry instanceof Map<?, ?> fields
+                        && fields.get("quantity") instanceof Number quantity
+                        && fields.get("expiresAt") instanceof Number expiresAt) {
+                    heldStock.put(holdId, new HeldStock(quantity.intValue(), expiresAt.longValue()));
+                }
+            });
+        }
+        return heldStock;
+    }
+
+    // Helper methods
+
+    /**
+     * Adds to an update of a product or shard document: the hold's heldStock entry set to
+     * {@code entry}, or removed when it is null, and every other lapsed entry removed. The map
+     * must be the document as the update finds it: read in the same transaction, or guarded
+     * by a precondition.
+     */
+    static void putHeld(FieldUpdate update, Map<String, HeldStock> heldStock, String holdId, HeldStock entry, long now) {
+        if (heldStock == null) {
+            heldStock = Map.of();
+        }
+        heldStock.forEach((key, existing) -> {
+            if (!key.equals(holdId) && !existing.isActive(now)) {
+                update.put(FieldPath.of(HELD_STOCK, key), FieldValue.delete());
+            }
+        });
+        if (entry != null) {
+            update.put(FieldPath.of(HELD_STOCK, holdId), toData(entry));
+        } else if (holdId != null && heldStock.containsKey(holdId)) {
+            update.put(FieldPath.of(HELD_STOCK, holdId), FieldValue.delete());
+        }
+    }
+
+    static Map<String, Object> toData(HeldStock entry) {
+        return Map.of("quantity", entry.getQuantity(), "expiresAt", entry.getExpiresAt());
+    }
+
+    static Map<String, Object> toData(Map<String, HeldStock> heldStock) {
+        Map<String, Object> data = new HashMap<>();
+        heldStock.forEach((holdId, entry) -> data.put(holdId, toData(entry)));
+        return data;
+    }
+
+    private static int shardCount(DocumentSnapshot product) {
+        Long stockShards = product.exists() ? product.getLong("stockShards") : null;
+        return stockShards != null && stockShards > 0 ? stockShards.intValue() : 0;
+    }
+
+    // Shards the hold already has a share of come first, then those with the most free stock
+    private static List<Integer> chooseShards(List<StockShard> shards, String holdId, int quantity, long now) {
+        List<StockShard> ordered = new ArrayList<>(shards);
+        ordered.sort(Comparator.comparing((StockShard shard) -> !shard.getHeldStock().containsKey(holdId))
+                .thenComparing(shard -> -shard.freeStock(holdId, now)));
+
+        List<Integer> chosen = new ArrayList<>();
+        int covered = 0;
+        for (StockShard shard : ordered) {
+            if (covered >= quantity && !shard.getHeldStock().containsKey(holdId)) {
+                break;
+            }
+            chosen.add(shard.getIndex());
+            covered += Math.max(0, shard.freeStock(holdId, now));
+        }
+        return chosen;
+    }
+
+    private Integer holdIn(Transaction transaction, StockHold hold, int shardCount, List<Integer> chosen)
+            throws ExecutionException, InterruptedException {
+        DocumentReference productRef = productCollection.document(hold.getProductId());
+        DocumentSnapshot product = transaction.get(productRef).get();
+        if (!product.exists()) {
+            return null;
+        }
+        if (shardCount(product) != shardCount) {
+            // Resharded since the shards were chosen
+            return 0;
+        }
+
+        String id = hold.getId();
+        long now = System.currentTimeMillis();
+        HeldStock entry = new HeldStock(hold.getQuantity(), hold.getExpiresAt());
+        if (shardCount == 0) {
+            Map<String, HeldStock> heldStock = readHeld(product);
+            Long stock = product.getLong("stock");
+            int available = (stock != null ? stock.intValue() : 0) - HeldStock.sumActive(heldStock, id, now);
+            if (available >= hold.getQuantity()) {
+                transaction.set(holdCollection.document(id), hold);
+                FieldUpdate update = new FieldUpdate();
+                putHeld(update, heldStock, id, entry, now);
+                update.applyTo(transaction, productRef, Precondition.NONE);
+            }
+            return available;
+        }
+
+        List<StockShard> shards = stockShardRepository.findShards(transaction, hold.getProductId(), chosen);
+        int available = shards.stream().mapToInt(shard -> Math.max(0, shard.freeStock(id, now))).sum();
+        if (available < hold.getQuantity()) {
+            return available;
+        }
+
+        transaction.set(holdCollection.document(id), hold);
+        int remaining = hold.getQuantity();
+        for (StockShard shard : shards) {
+            int taken = Math.min(Math.max(0, shard.freeStock(id, now)), remaining);
+            remaining -= taken;
+            stockShardRepository.charge(transaction, shard, id,
+                    taken > 0 ? new HeldStock(taken, hold.getExpiresAt()) : null, now);
+        }
+        return available;
+    }
+}
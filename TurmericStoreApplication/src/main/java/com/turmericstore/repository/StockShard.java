@@ -0,0 +1,34 @@
+package com.turmericstore.repository;
+
+import com.google.cloud.Timestamp;
+import com.turmericstore.model.HeldStock;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * One shard of a hot product's stock, as read, with the holds charged against it and the
+ * shard document's update time.
+ */
+@Data
+@AllArgsConstructor
+public class StockShard {
+
+    private String productId;
+
+    private int index;
+
+    private int stock;
+
+    private Map<String, HeldStock> heldStock;
+
+    private Timestamp updateTime;
+
+    /**
+     * Stock on this shard not held by anyone but the given hold's owner.
+     */
+    public int freeStock(String holdId, long now) {
+        return stock - HeldStock.sumActive(heldStock, holdId, now);
+    }
+}
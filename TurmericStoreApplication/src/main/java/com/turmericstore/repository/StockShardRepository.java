@@ -0,0 +1,286 @@
+package com.turmericstore.repository;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.*;
+import com.turmericstore.model.HeldStock;
+import com.turmericstore.util.AppConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Stock of hot products, split across shard documents under products/{id}/stockShards.
+ * A single document takes about one sustained write per second, so a flash-sale SKU whose
+ * every order decremented one stock field would queue its checkouts; with N shards,
+ * orders reserving from different shards commit in parallel.
+ * The product's stockShards field says how many shards exist; without it the product
+ * keeps its stock on the product document as usual. With it, the product's stock field is
+ * a total copied from the shards now and then, which is what catalog reads show; checkout
+ * always reads the shards themselves. Cart holds on a sharded product are charged against
+ * particular shards, in each shard's heldStock, so checkout can check and reserve a shard
+ * at a time.
+ */
+@Repository
+public class StockShardRepository {
+
+    public static final int MAX_SHARDS = 50;
+
+    private static final String SUBCOLLECTION_STOCK_SHARDS = "stockShards";
+
+    private final Firestore firestore;
+    private final CollectionReference productCollection;
+
+    @Autowired
+    public StockShardRepository(Firestore firestore) {
+        this.firestore = firestore;
+        this.productCollection = firestore.collection(AppConstants.COLLECTION_PRODUCTS);
+    }
+
+    /**
+     * Reads the shards of several products in one batched get.
+     *
+     * @param shardCounts number of shards per product id
+     * @return shards per product id, in shard order; missing shards count as empty
+     */
+    public Map<String, List<StockShard>> findShards(Map<String, Integer> shardCounts) throws ExecutionException, InterruptedException {
+        Map<String, List<StockShard>> shards = new HashMap<>();
+        List<DocumentReference> refs = new ArrayList<>();
+        shardCounts.forEach((productId, count) -> {
+            shards.put(productId, new ArrayList<>());
+            refs.addAll(shardRefs(productId, count));
+        });
+        if (refs.isEmpty()) {
+            return shards;
+        }
+
+        ApiFuture<List<DocumentSnapshot>> future = firestore.getAll(refs.toArray(new DocumentReference[0]));
+        for (DocumentSnapshot document : future.get()) {
+            String productId = document.getReference().getParent().getParent().getId();
+            shards.get(productId).add(toShard(productId, document));
+        }
+        return shards;
+    }
+
+    /**
+     * Reads some of a product's shards inside the given transaction, in the order given.
+     */
+    public List<StockShard> findShards(Transaction transaction, String productId, Collection<Integer> indexes)
+            throws ExecutionException, InterruptedException {
+        List<StockShard> shards = new ArrayList<>(indexes.size());
+        if (indexes.isEmpty()) {
+            return shards;
+        }
+        DocumentReference[] refs = indexes.stream()
+                .map(index -> shardRef(productId, index))
+                .toArray(DocumentReference[]::new);
+        for (DocumentSnapshot document : transaction.getAll(refs).get()) {
+            shards.add(toShard(productId, document));
+        }
+        return shards;
+    }
+
+    /**
+     * Total stock across a product's shards, read inside the given transaction.
+     */
+    public int sumStock(Transaction transaction, String productId, int shards) throws ExecutionException, InterruptedException {
+        return findShards(transaction, productId, indexes(shards)).stream()
+                .mapToInt(StockShard::getStock)
+                .sum();
+    }
+
+    /**
+     * Adds a decrement of one shard to the batch, applied only if the shard is unchanged since it was read.
+     * The given hold, the buyer's own, comes off the shard in the same write. Only shards read
+     * with stock, and so existing, are reserved from.
+     */
+    public void reserve(WriteBatch batch, StockShard shard, int quantity, String consumedHoldId) {
+        long now = System.currentTimeMillis();
+        FieldUpdate update = new FieldUpdate()
+                .put("stock", FieldValue.increment(-quantity))
+                .put("updatedAt", now);
+        StockHoldRepository.putHeld(update, shard.getHeldStock(), consumedHoldId, null, now);
+        update.applyTo(batch, shardRef(shard.getProductId(), shard.getIndex()),
+                Precondition.updatedAt(shard.getUpdateTime()));
+    }
+
+    /**
+     * Adds the removal of a hold from a shard to the batch. Giving held stock back never
+     * oversells, so it needs no precondition.
+     */
+    public void release(WriteBatch batch, StockShard shard, String holdId) {
+        batch.update(shardRef(shard.getProductId(), shard.getIndex()),
+                FieldPath.of(StockHoldRepository.HELD_STOCK, holdId), FieldValue.delete());
+    }
+
+    /**
+     * Sets a hold's share of a shard read in the same transaction, or removes it when
+     * {@code entry} is null. Only this shard is written, so checkouts reserving from the
+     * product's other shards are not disturbed.
+     */
+    public void charge(Transaction transaction, StockShard shard, String holdId, HeldStock entry, long now) {
+        FieldUpdate update = new FieldUpdate();
+        StockHoldRepository.putHeld(update, shard.getHeldStock(), holdId, entry, now);
+        if (!update.isEmpty()) {
+            update.applyTo(transaction, shardRef(shard.getProductId(), shard.getIndex()), Precondition.NONE);
+        }
+    }
+
+    /**
+     * Copies the sum of a sharded product's shards into its stock field, bumping updatedAt so
+     * catalog replicas and delta sync pick it up. Nothing is written if the total is unchanged.
+     *
+     * @return the total, or null if the product does not exist or is not sharded
+     */
+    public Integer syncTotal(String productId) throws ExecutionException, InterruptedException {
+        DocumentReference productRef = productCollection.document(productId);
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot product = transaction.get(productRef).get();
+            Long stockShards = product.exists() ? product.getLong("stockShards") : null;
+            if (stockShards == null || stockShards <= 0) {
+                return null;
+            }
+
+            int total = sumStock(transaction, productId, stockShards.intValue());
+            Long stored = product.getLong("stock");
+            if (stored == null || stored != total) {
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("stock", total);
+                updates.put("updatedAt", System.currentTimeMillis());
+                transaction.update(productRef, updates);
+            }
+            return total;
+        }).get();
+    }
+
+    /**
+     * Re-splits a product's stock across {@code shards} shard documents, or folds it back into
+     * the product document when {@code shards} is 0. The total is kept unless {@code stock} is given.
+     * Active holds move along with the stock, filling the new shards in turn.
+     *
+     * @return the product's total stock afterwards, or null if the product does not exist
+     */
+    public Integer configure(String productId, int shards, Integer stock) throws ExecutionException, InterruptedException {
+        DocumentReference productRef = productCollection.document(productId);
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot product = transaction.get(productRef).get();
+            if (!product.exists()) {
+                return null;
+            }
+
+            // Every read happens before the first write of the transaction
+            Long storedShards = product.getLong("stockShards");
+            int currentShards = storedShards != null ? storedShards.intValue() : 0;
+            long now = System.currentTimeMillis();
+            int currentStock;
+            Map<String, HeldStock> held = new TreeMap<>();
+            if (currentShards > 0) {
+                currentStock = 0;
+                for (StockShard shard : findShards(transaction, productId, indexes(currentShards))) {
+                    currentStock += shard.getStock();
+                    addActive(held, shard.getHeldStock(), now);
+                }
+            } else {
+                Long productStock = product.getLong("stock");
+                currentStock = productStock != null ? productStock.intValue() : 0;
+                addActive(held, StockHoldRepository.readHeld(product), now);
+            }
+            int total = stock != null ? stock : currentStock;
+
+            List<Map<String, Object>> shardHolds = new ArrayList<>();
+            int[] room = new int[shards];
+            for (int index = 0; index < shards; index++) {
+                // The remainder goes one unit each to the first shards
+                room[index] = total / shards + (index < total % shards ? 1 : 0);
+                shardHolds.add(new HashMap<>());
+            }
+            if (shards > 0) {
+                spread(held, room, shardHolds);
+            }
+            for (int index = 0; index < shards; index++) {
+                Map<String, Object> shard = new HashMap<>();
+                shard.put("stock", total / shards + (index < total % shards ? 1 : 0));
+                shard.put(StockHoldRepository.HELD_STOCK, shardHolds.get(index));
+                shard.put("updatedAt", now);
+                transaction.set(shardRef(productId, index), shard);
+            }
+            for (int index = shards; index < currentShards; index++) {
+                transaction.delete(shardRef(productId, index));
+            }
+
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("stockShards", shards > 0 ? shards : FieldValue.delete());
+            updates.put("stock", total);
+            updates.put(StockHoldRepository.HELD_STOCK, shards > 0 ? Map.of() : StockHoldRepository.toData(held));
+            updates.put("updatedAt", now);
+            transaction.update(productRef, updates);
+            return total;
+        }).get();
+    }
+
+    // Helper methods
+    private DocumentReference shardRef(String productId, int index) {
+        return productCollection.document(productId)
+                .collection(SUBCOLLECTION_STOCK_SHARDS)
+                .document(String.valueOf(index));
+    }
+
+    private List<DocumentReference> shardRefs(String productId, int count) {
+        List<DocumentReference> refs = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            refs.add(shardRef(productId, index));
+        }
+        return refs;
+    }
+
+    private static List<Integer> indexes(int count) {
+        List<Integer> indexes = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            indexes.add(index);
+        }
+        return indexes;
+    }
+
+    private static StockShard toShard(String productId, DocumentSnapshot document) {
+        Long stock = document.exists() ? document.getLong("stock") : null;
+        return new StockShard(productId, Integer.parseInt(document.getId()),
+                stock != null ? stock.intValue() : 0, StockHoldRepository.readHeld(document),
+                document.getUpdateTime());
+    }
+
+    // A hold charged to several shards is merged back into one before it is spread again
+    private static void addActive(Map<String, HeldStock> held, Map<String, HeldStock> entries, long now) {
+        entries.forEach((holdId, entry) -> {
+            if (entry.isActive(now)) {
+                held.merge(holdId, entry, (a, b) -> new HeldStock(a.getQuantity() + b.getQuantity(),
+                        Math.max(a.getExpiresAt(), b.getExpiresAt())));
+            }
+        });
+    }
+
+    // Charges each hold to the shards in turn, up to their stock; any excess lands on the last shard
+    private static void spread(Map<String, HeldStock> held, int[] room, List<Map<String, Object>> shardHolds) {
+        int index = 0;
+        for (Map.Entry<String, HeldStock> entry : held.entrySet()) {
+            int remaining = entry.getValue().getQuantity();
+            while (remaining > 0) {
+                int taken = index == room.length - 1 ? remaining : Math.min(room[index], remaining);
+                if (taken > 0) {
+                    room[index] -= taken;
+                    remaining -= taken;
+                    HeldStock part = new HeldStock(taken, entry.getValue().getExpiresAt());
+                    shardHolds.get(index).put(entry.getKey(), StockHoldRepository.toData(part));
+                }
+                if (remaining > 0) {
+                    index++;
+                }
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
 import com.turmericstore.model.User;
 import com.turmericstore.util.AppConstants;
+import com.turmericstore.util.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -15,12 +16,17 @@ import java.util.concurrent.ExecutionException;
 @Repository
 public class UserRepository {
 
+    // Every stored field except the ones the counters track
+    private static final SetOptions UNCOUNTED_FIELDS = SetOptions.mergeFields(FieldMasks.fieldsExcept(User.class, "active"));
+
     private final Firestore firestore;
     private final CollectionReference userCollection;
+    private final CounterRepository counterRepository;
 
     @Autowired
-    public UserRepository(Firestore firestore) {
+    public UserRepository(Firestore firestore, CounterRepository counterRepository) {
         this.firestore = firestore;
+        this.counterRepository = counterRepository;
         this.userCollection = firestore.collection(AppConstants.COLLECTION_USERS);
     }
 
@@ -36,6 +42,26 @@ public class UserRepository {
         return users;
     }
 
+    public List<User> findPage(PageCursor after, int limit) throws ExecutionException, InterruptedException {
+        // Keyset pagination: startAfter costs the same on every page, unlike offset()
+        Query query = userCollection.orderBy("createdAt", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(limit);
+        if (after != null) {
+            query = query.startAfter(after.getCreatedAt(), after.getId());
+        }
+
+        ApiFuture<QuerySnapshot> future = query.get();
+        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+
+        List<User> users = new ArrayList<>();
+        for (QueryDocumentSnapshot document : documents) {
+            users.add(document.toObject(User.class));
+        }
+
+        return users;
+    }
+
     public Optional<User> findById(String id) throws ExecutionException, InterruptedException {
         DocumentReference docRef = userCollection.document(id);
         ApiFuture<DocumentSnapshot> future = docRef.get();
@@ -68,7 +94,8 @@ public class UserRepository {
     }
 
     public User save(User user) throws ExecutionException, InterruptedException {
-        if (user.getId() == null) {
+        boolean isNew = user.getId() == null;
+        if (isNew) {
             // Create a new document with auto-generated ID
             DocumentReference docRef = userCollection.document();
             user.setId(docRef.getId());
@@ -81,18 +108,53 @@ public class UserRepository {
         }
         user.setUpdatedAt(currentTime);
 
-        // Save to Firestore
+        // Save to Firestore, updating the counters in the same write
         DocumentReference docRef = userCollection.document(user.getId());
-        ApiFuture<WriteResult> future = docRef.set(user);
-        future.get(); // Wait for the operation to complete
+        if (isNew) {
+            WriteBatch batch = firestore.batch();
+            batch.create(docRef, user);
+            counterRepository.recordUserChange(batch, null, user);
+            batch.commit().get(); // Wait for the operation to complete
+        } else {
+            // The counted active flag is left to setActive, so an ordinary update needs no read
+            docRef.set(user, UNCOUNTED_FIELDS).get(); // Wait for the operation to complete
+        }
 
         return user;
     }
 
+    /**
+     * Activates or deactivates a user, adjusting the active users counter in the same transaction.
+     */
+    public void setActive(String id, boolean active) throws ExecutionException, InterruptedException {
+        DocumentReference docRef = userCollection.document(id);
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(docRef).get();
+            if (!existing.exists()) {
+                return null;
+            }
+            User before = existing.toObject(User.class);
+            transaction.update(docRef,
+                    "active", active,
+                    "updatedAt", System.currentTimeMillis()
+            );
+            User after = existing.toObject(User.class);
+            after.setActive(active);
+            counterRepository.recordUserChange(transaction, before, after);
+            return null;
+        }).get(); // Wait for the operation to complete
+    }
+
     public void delete(String id) throws ExecutionException, InterruptedException {
         DocumentReference docRef = userCollection.document(id);
-        ApiFuture<WriteResult> future = docRef.delete();
-        future.get(); // Wait for the operation to complete
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(docRef).get();
+            if (existing.exists()) {
+                transaction.delete(docRef);
+                counterRepository.recordUserChange(transaction, existing.toObject(User.class), null);
+            }
+            return null;
+        }).get(); // Wait for the operation to complete
     }
 
     public void updateLastLogin(String id, long timestamp) throws ExecutionException, InterruptedException {
@@ -100,4 +162,15 @@ public class UserRepository {
         ApiFuture<WriteResult> future = docRef.update("lastLogin", timestamp, "updatedAt", timestamp);
         future.get(); // Wait for the operation to complete
     }
+
+    public long count() throws ExecutionException, InterruptedException {
+        // Aggregation query: billed per batch of index entries, no documents are downloaded
+        ApiFuture<AggregateQuerySnapshot> future = userCollection.count().get();
+        return future.get().getCount();
+    }
+
+    public long countActive() throws ExecutionException, InterruptedException {
+        ApiFuture<AggregateQuerySnapshot> future = userCollection.whereEqualTo("active", true).count().get();
+        return future.get().getCount();
+    }
 }
@@ -0,0 +1,19 @@
+package com.turmericstore.repository;
+
+import com.google.cloud.Timestamp;
+import com.turmericstore.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A product as read, with the document's update time. Writes conditioned on that time
+ * fail if anyone changed the product after it was read.
+ */
+@Data
+@AllArgsConstructor
+public class VersionedProduct {
+
+    private Product product;
+
+    private Timestamp updateTime;
+}
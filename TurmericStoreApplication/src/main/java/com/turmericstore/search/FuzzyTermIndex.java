@@ -0,0 +1,133 @@
+package com.turmericstore.search;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Character trigram index over the search vocabulary, for finding terms within a small edit
+ * distance of a misspelled token. Trigrams narrow the vocabulary to terms sharing enough of
+ * them (one edit changes at most three), and a banded Levenshtein check confirms each one.
+ * Terms are added and removed as the vocabulary changes, never rebuilt per query.
+ */
+final class FuzzyTermIndex {
+
+    private static final char BOUNDARY = '$';
+
+    private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+
+    void add(String term) {
+        for (String trigram : trigrams(term)) {
+            termsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(term);
+        }
+    }
+
+    void remove(String term) {
+        for (String trigram : trigrams(term)) {
+            Set<String> terms = termsByTrigram.get(trigram);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    termsByTrigram.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Terms within the allowed edit distance of the token, mapped to their distance.
+     */
+    Map<String, Integer> match(String token) {
+        Map<String, Integer> matches = new HashMap<>();
+        int maxDistance = maxDistance(token.length());
+        if (maxDistance == 0) {
+            return matches;
+        }
+
+        Set<String> tokenTrigrams = trigrams(token);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : tokenTrigrams) {
+            Set<String> terms = termsByTrigram.get(trigram);
+            if (terms != null) {
+                for (String term : terms) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+
+        int minShared = tokenTrigrams.size() - 3 * maxDistance;
+        shared.forEach((term, count) -> {
+            if (count < minShared || Math.abs(term.length() - token.length()) > maxDistance) {
+                return;
+            }
+            int distance = distance(token, term, maxDistance);
+            if (distance > 0 && distance <= maxDistance) {
+                matches.put(term, distance);
+            }
+        });
+        return matches;
+    }
+
+    // Short words tolerate fewer typos, or nearly everything would match them
+    static int maxDistance(int length) {
+        if (length < 4) {
+            return 0;
+        }
+        return length < 8 ? 1 : 2;
+    }
+
+    /**
+     * Levenshtein distance, computed only within {@code max} of the diagonal.
+     * Returns max + 1 as soon as the distance is known to exceed max.
+     */
+    static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+
+        int outside = max + 1;
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= max ? j : outside;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(m, i + max);
+            current[0] = i <= max ? i : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(value, outside);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > max) {
+                return outside;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+
+    private static Set<String> trigrams(String term) {
+        String padded = BOUNDARY + term + BOUNDARY;
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,244 @@
+package com.turmericstore.search;
+
+import com.turmericstore.catalog.CatalogChange;
+import com.turmericstore.catalog.CatalogChangeListener;
+import com.turmericstore.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the product catalog, ranked with BM25.
+ * Name, brand, tags and description are indexed with different field weights
+ * so a match in the product name outranks a passing mention in the description.
+ * Tokens missing from the vocabulary also match terms within a small edit distance
+ * ("tumeric" finds "turmeric"), regional names expand through the {@link SynonymDictionary},
+ * and featured or in-stock products get a small boost.
+ * Kept current by the catalog replica.
+ */
+@Component
+public class ProductSearchIndex implements CatalogChangeListener {
+
+    // BM25 tuning constants (standard defaults)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Field weights applied to term frequencies
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float TAG_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // Prefix matches keep "tur" finding "turmeric" but score below exact terms
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    // A synonym is the same product under another name, so it scores almost like the literal term
+    private static final double SYNONYM_MATCH_WEIGHT = 0.9;
+
+    // Typo matches score below prefix matches, and lower still the further off they are
+    private static final double FUZZY_MATCH_WEIGHT = 0.4;
+
+    // Popularity boosts, small enough that they mostly reorder close scores
+    private static final double FEATURED_BOOST = 0.10;
+    private static final double IN_STOCK_BOOST = 0.05;
+
+    private final Map<String, IndexedProduct> documents = new HashMap<>();
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    private final FuzzyTermIndex fuzzyTerms = new FuzzyTermIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SynonymDictionary synonyms;
+    private double totalLength;
+
+    @Autowired
+    public ProductSearchIndex(SynonymDictionary synonyms) {
+        this.synonyms = synonyms;
+    }
+
+    @Override
+    public void onProductsChanged(List<CatalogChange<Product>> changes) {
+        lock.writeLock().lock();
+        try {
+            for (CatalogChange<Product> change : changes) {
+                removeDocument(change.getId());
+                if (!change.isRemoval()) {
+                    addDocument(change.getAfter());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns products matching every term of the query, best match first.
+     */
+    public List<Product> search(String query) {
+        List<String> tokens = TextAnalyzer.analyze(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            double averageLength = totalLength / documents.size();
+            Map<String, Double> scores = null;
+
+            for (String token : tokens) {
+                Map<String, Double> termScores = scoreTerm(token, averageLength);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Every query term has to match somewhere in the product
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            scores.replaceAll((id, score) -> score * documents.get(id).boost);
+            List<Product> results = new ArrayList<>(scores.size());
+            scores.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> results.add(documents.get(entry.getKey()).product));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Helper methods (callers hold the appropriate lock)
+    private Map<String, Double> scoreTerm(String token, double averageLength) {
+        Map<String, Double> termScores = new HashMap<>();
+        expand(token).forEach((term, weight) -> {
+            Map<String, Float> termPostings = postings.get(term);
+            if (termPostings == null) {
+                return;
+            }
+            double idf = idf(termPostings.size());
+            termPostings.forEach((id, frequency) -> {
+                double score = weight * bm25(idf, frequency, documents.get(id).length, averageLength);
+                // A product matching several expansions of the same token keeps its best one
+                termScores.merge(id, score, Math::max);
+            });
+        });
+        return termScores;
+    }
+
+    private Map<String, Double> expand(String token) {
+        Map<String, Double> terms = new LinkedHashMap<>();
+        terms.put(token, 1.0);
+        for (String synonym : synonyms.expand(token)) {
+            terms.put(synonym, SYNONYM_MATCH_WEIGHT);
+        }
+
+        int expansions = 0;
+        for (String term : postings.tailMap(token, false).keySet()) {
+            if (!term.startsWith(token) || expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            terms.putIfAbsent(term, PREFIX_MATCH_WEIGHT);
+        }
+
+        // Only a token that is neither a term, a synonym nor the start of a term is treated as a typo
+        if (expansions == 0 && terms.size() == 1 && !postings.containsKey(token)) {
+            fuzzyTerms.match(token).forEach((term, distance) -> terms.put(term, FUZZY_MATCH_WEIGHT / distance));
+        }
+        return terms;
+    }
+
+    private double idf(int documentFrequency) {
+        int n = documents.size();
+        return Math.log(1 + (n - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double bm25(double idf, float frequency, float length, double averageLength) {
+        double norm = K1 * (1 - B + B * length / averageLength);
+        return idf * frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    private void addDocument(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        length += addField(frequencies, product.getName(), NAME_WEIGHT);
+        length += addField(frequencies, product.getBrand(), BRAND_WEIGHT);
+        length += addField(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+        if (product.getTags() != null) {
+            for (String tag : product.getTags()) {
+                length += addField(frequencies, tag, TAG_WEIGHT);
+            }
+        }
+
+        double boost = 1
+                + (Boolean.TRUE.equals(product.getFeatured()) ? FEATURED_BOOST : 0)
+                + (product.isInStock() ? IN_STOCK_BOOST : 0);
+        documents.put(product.getId(), new IndexedProduct(product, frequencies, length, boost));
+        totalLength += length;
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> {
+            fuzzyTerms.add(t);
+            return new HashMap<>();
+        }).put(product.getId(), frequency));
+    }
+
+    private void removeDocument(String productId) {
+        IndexedProduct existing = documents.remove(productId);
+        if (existing == null) {
+            return;
+        }
+
+        totalLength -= existing.length;
+        for (String term : existing.frequencies.keySet()) {
+            Map<String, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                    fuzzyTerms.remove(term);
+                }
+            }
+        }
+    }
+
+    private static float addField(Map<String, Float> frequencies, String text, float weight) {
+        List<String> tokens = TextAnalyzer.analyze(text);
+        for (String token : tokens) {
+            frequencies.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private static final class IndexedProduct {
+        private final Product product;
+        private final Map<String, Float> frequencies;
+        private final float length;
+        private final double boost;
+
+        private IndexedProduct(Product product, Map<String, Float> frequencies, float length, double boost) {
+            this.product = product;
+            this.frequencies = frequencies;
+            this.length = length;
+            this.boost = boost;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.turmericstore.search;
+
+import com.turmericstore.catalog.CatalogChange;
+import com.turmericstore.catalog.CatalogChangeListener;
+import com.turmericstore.dto.SuggestionDTO;
+import com.turmericstore.model.Category;
+import com.turmericstore.model.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Autocomplete over product names, brands and category names.
+ * Suggestions are ranked once, by weight, when the dictionary is built, so a lookup only
+ * has to find the smallest ranks under a prefix. Every word start of a suggestion is a key.
+ * A key is stored as (suggestion, offset) into the normalized text, not as its own string.
+ * The sorted keys are binary searched like a suffix array. Top suggestions for prefixes of
+ * up to three characters are precomputed, since those match the most keys.
+ * Catalog changes that can alter a suggestion or its weight rebuild the dictionary on a
+ * background thread; lookups keep using the previous one until the new one is swapped in.
+ * Other changes, such as stock moving without crossing zero, are only recorded.
+ */
+@Component
+public class SuggestionIndex implements CatalogChangeListener {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 3;
+    // Later words of long names are rarely typed first
+    private static final int MAX_WORD_STARTS = 8;
+
+    // Popularity weights; brands and categories weigh as much as their active products
+    private static final int PRODUCT_WEIGHT = 1;
+    private static final int FEATURED_BONUS = 2;
+    private static final int IN_STOCK_BONUS = 1;
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionIndex.class);
+
+    private final Object lock = new Object();
+    private final Map<String, Product> products = new HashMap<>();
+    private final Map<String, Category> categories = new HashMap<>();
+    private volatile Dictionary dictionary = new Dictionary(new ArrayList<>());
+
+    // One rebuild at a time; changes arriving during a rebuild queue exactly one more
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggestion-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    @Override
+    public void onProductsChanged(List<CatalogChange<Product>> changes) {
+        boolean affectsSuggestions = false;
+        synchronized (lock) {
+            for (CatalogChange<Product> change : changes) {
+                if (change.isRemoval()) {
+                    products.remove(change.getId());
+                } else {
+                    products.put(change.getId(), change.getAfter());
+                }
+                affectsSuggestions |= affectsSuggestions(change.getBefore(), change.getAfter());
+            }
+        }
+        if (affectsSuggestions) {
+            scheduleRebuild();
+        }
+    }
+
+    @Override
+    public void onCategoriesChanged(List<CatalogChange<Category>> changes) {
+        boolean affectsSuggestions = false;
+        synchronized (lock) {
+            for (CatalogChange<Category> change : changes) {
+                if (change.isRemoval()) {
+                    categories.remove(change.getId());
+                } else {
+                    categories.put(change.getId(), change.getAfter());
+                }
+                Category before = change.getBefore();
+                Category after = change.getAfter();
+                affectsSuggestions |= before == null || after == null
+                        || !Objects.equals(before.getName(), after.getName())
+                        || !Objects.equals(before.getActive(), after.getActive());
+            }
+        }
+        if (affectsSuggestions) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Up to {@code limit} suggestions with a word starting with the prefix, most popular first.
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String normalized = TextAnalyzer.normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return dictionary.suggest(normalized, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuildPending.compareAndSet(false, true)) {
+            return; // The queued rebuild has not started yet and will see this change
+        }
+        rebuildExecutor.execute(() -> {
+            rebuildPending.set(false);
+            try {
+                List<Product> productList;
+                List<Category> categoryList;
+                synchronized (lock) {
+                    productList = new ArrayList<>(products.values());
+                    categoryList = new ArrayList<>(categories.values());
+                }
+                // Built outside the lock so catalog listeners are never held up
+                dictionary = new Dictionary(candidates(productList, categoryList));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to rebuild the suggestion dictionary", e);
+            }
+        });
+    }
+
+    // Only the fields candidates() reads; inactive products contribute nothing either way
+    private static boolean affectsSuggestions(Product before, Product after) {
+        boolean activeBefore = before != null && Boolean.TRUE.equals(before.getActive());
+        boolean activeAfter = after != null && Boolean.TRUE.equals(after.getActive());
+        if (!activeBefore && !activeAfter) {
+            return false;
+        }
+        return activeBefore != activeAfter
+                || !Objects.equals(before.getName(), after.getName())
+                || !Objects.equals(before.getBrand(), after.getBrand())
+                || !Objects.equals(before.getCategoryId(), after.getCategoryId())
+                || !Objects.equals(before.getFeatured(), after.getFeatured())
+                || before.isInStock() != after.isInStock();
+    }
+
+    private static List<Candidate> candidates(List<Product> products, List<Category> categories) {
+        List<Candidate> candidates = new ArrayList<>();
+        Map<String, Integer> categoryWeights = new HashMap<>();
+        Map<String, String> brandNames = new HashMap<>();
+        Map<String, Integer> brandWeights = new HashMap<>();
+
+        for (Product product : products) {
+            if (!Boolean.TRUE.equals(product.getActive())) {
+                continue;
+            }
+            int weight = PRODUCT_WEIGHT
+                    + (Boolean.TRUE.equals(product.getFeatured()) ? FEATURED_BONUS : 0)
+                    + (product.isInStock() ? IN_STOCK_BONUS : 0);
+            candidates.add(new Candidate(product.getName(), "product", product.getId(), weight));
+
+            if (product.getCategoryId() != null) {
+                categoryWeights.merge(product.getCategoryId(), 1, Integer::sum);
+            }
+            String brand = TextAnalyzer.normalize(product.getBrand());
+            if (!brand.isEmpty()) {
+                brandWeights.merge(brand, 1, Integer::sum);
+                // Spellings differing only in case or accents become one brand; keep one deterministically
+                brandNames.merge(brand, product.getBrand().trim(), (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+
+        brandNames.forEach((brand, name) ->
+                candidates.add(new Candidate(name, "brand", null, brandWeights.get(brand))));
+        for (Category category : categories) {
+            if (Boolean.TRUE.equals(category.getActive())) {
+                // Empty categories still get suggested, below any that have products
+                int weight = 1 + categoryWeights.getOrDefault(category.getId(), 0);
+                candidates.add(new Candidate(category.getName(), "category", category.getId(), weight));
+            }
+        }
+        return candidates;
+    }
+
+    private static final class Candidate {
+        private final String text;
+        private final String normalized;
+        private final String type;
+        private final String id;
+        private final int weight;
+
+        private Candidate(String text, String type, String id, int weight) {
+            this.text = text;
+            this.normalized = TextAnalyzer.normalize(text);
+            this.type = type;
+            this.id = id;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Dictionary {
+        // Indexed by rank: 0 is the most popular suggestion
+        private final String[] texts;
+        private final String[] types;
+        private final String[] ids;
+        private final String[] normalized;
+        // Sorted keys, each a word start inside normalized[keyRanks[k]]
+        private final int[] keyRanks;
+        private final int[] keyOffsets;
+        private final Map<String, int[]> topByPrefix = new HashMap<>();
+
+        private Dictionary(List<Candidate> candidates) {
+            candidates.removeIf(candidate -> candidate.normalized.isEmpty());
+            candidates.sort(Comparator.comparingInt((Candidate candidate) -> -candidate.weight)
+                    .thenComparingInt(candidate -> candidate.normalized.length())
+                    .thenComparing(candidate -> candidate.normalized)
+                    .thenComparing(candidate -> candidate.type));
+
+            int size = candidates.size();
+            texts = new String[size];
+            types = new String[size];
+            ids = new String[size];
+            normalized = new String[size];
+            List<long[]> keys = new ArrayList<>();
+            for (int rank = 0; rank < size; rank++) {
+                Candidate candidate = candidates.get(rank);
+                texts[rank] = candidate.text;
+                types[rank] = candidate.type;
+                ids[rank] = candidate.id;
+                normalized[rank] = candidate.normalized;
+
+                int words = 0;
+                for (int offset = 0; offset >= 0 && words < MAX_WORD_STARTS; words++) {
+                    keys.add(new long[]{rank, offset});
+                    offset = candidate.normalized.indexOf(' ', offset);
+                    offset = offset < 0 ? -1 : offset + 1;
+                }
+            }
+
+            keys.sort((a, b) -> {
+                int order = compareSuffixes((int) a[0], (int) a[1], (int) b[0], (int) b[1]);
+                return order != 0 ? order : Long.compare(a[0], b[0]);
+            });
+            keyRanks = new int[keys.size()];
+            keyOffsets = new int[keys.size()];
+            for (int k = 0; k < keys.size(); k++) {
+                keyRanks[k] = (int) keys.get(k)[0];
+                keyOffsets[k] = (int) keys.get(k)[1];
+            }
+
+            // Keys sharing a prefix are contiguous, so each short prefix is computed at its first key
+            String[] lastPrefix = new String[PRECOMPUTED_PREFIX_LENGTH + 1];
+            for (int k = 0; k < keyRanks.length; k++) {
+                String key = normalized[keyRanks[k]];
+                for (int length = 1; length <= PRECOMPUTED_PREFIX_LENGTH; length++) {
+                    if (keyOffsets[k] + length > key.length()) {
+                        break;
+                    }
+                    String prefix = key.substring(keyOffsets[k], keyOffsets[k] + length);
+                    if (!prefix.equals(lastPrefix[length])) {
+                        lastPrefix[length] = prefix;
+                        topByPrefix.put(prefix, top(k, upperBound(prefix), MAX_SUGGESTIONS));
+                    }
+                }
+            }
+        }
+
+        private List<SuggestionDTO> suggest(String prefix, int limit) {
+            int[] ranks;
+            if (prefix.length() <= PRECOMPUTED_PREFIX_LENGTH) {
+                ranks = topByPrefix.getOrDefault(prefix, new int[0]);
+            } else {
+                ranks = top(lowerBound(prefix), upperBound(prefix), limit);
+            }
+
+            List<SuggestionDTO> suggestions = new ArrayList<>(Math.min(limit, ranks.length));
+            for (int i = 0; i < ranks.length && i < limit; i++) {
+                int rank = ranks[i];
+                suggestions.add(SuggestionDTO.builder()
+                        .text(texts[rank])
+                        .type(types[rank])
+                        .id(ids[rank])
+                        .build());
+            }
+            return suggestions;
+        }
+
+        // The smallest distinct ranks among keys[from, to), ascending
+        private int[] top(int from, int to, int limit) {
+            int[] best = new int[limit];
+            int size = 0;
+            for (int k = from; k < to; k++) {
+                int rank = keyRanks[k];
+                if (size == limit && rank >= best[size - 1]) {
+                    continue;
+                }
+                int position = Arrays.binarySearch(best, 0, size, rank);
+                if (position >= 0) {
+                    continue; // Same suggestion through another of its words
+                }
+                position = -position - 1;
+                int moved = Math.min(size, limit - 1) - position;
+                System.arraycopy(best, position, best, position + 1, moved);
+                best[position] = rank;
+                size = Math.min(size + 1, limit);
+            }
+            return Arrays.copyOf(best, size);
+        }
+
+        private int lowerBound(String prefix) {
+            int low = 0;
+            int high = keyRanks.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparePrefix(mid, prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int upperBound(String prefix) {
+            int low = 0;
+            int high = keyRanks.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparePrefix(mid, prefix) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Compares the start of key k with the prefix; 0 when the key starts with it
+        private int comparePrefix(int k, String prefix) {
+            String text = normalized[keyRanks[k]];
+            int offset = keyOffsets[k];
+            int length = Math.min(prefix.length(), text.length() - offset);
+            for (int i = 0; i < length; i++) {
+                int order = Character.compare(text.charAt(offset + i), prefix.charAt(i));
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return length == prefix.length() ? 0 : -1;
+        }
+
+        private int compareSuffixes(int rankA, int offsetA, int rankB, int offsetB) {
+            String a = normalized[rankA];
+            String b = normalized[rankB];
+            int length = Math.min(a.length() - offsetA, b.length() - offsetB);
+            for (int i = 0; i < length; i++) {
+                int order = Character.compare(a.charAt(offsetA + i), b.charAt(offsetB + i));
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return Integer.compare(a.length() - offsetA, b.length() - offsetB);
+        }
+    }
+}
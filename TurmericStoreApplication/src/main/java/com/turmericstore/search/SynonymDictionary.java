@@ -0,0 +1,134 @@
+package com.turmericstore.search;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Regional and alternate names for grocery terms (haldi for turmeric, jeera for cumin).
+ * Each line of the dictionary lists terms that mean the same thing, separated by commas;
+ * lines sharing a term are merged. The lines are compiled into one hash table from each
+ * term to its synonyms, so expanding a query token is a single lookup. A reload builds a
+ * new table and swaps it in atomically; searches never see a half-loaded dictionary.
+ */
+@Component
+public class SynonymDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(SynonymDictionary.class);
+    private static final String[] NONE = new String[0];
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final AtomicReference<Map<String, String[]>> table = new AtomicReference<>(Map.of());
+
+    @Autowired
+    public SynonymDictionary(ResourceLoader resourceLoader,
+                             @Value("${app.search.synonyms-location:classpath:synonyms.txt}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Starting without a dictionary is allowed; there is no earlier table to keep
+        if (!resourceLoader.getResource(location).exists()) {
+            logger.warn("Synonym dictionary {} not found; searching without synonyms", location);
+            return;
+        }
+        reload();
+    }
+
+    /**
+     * Synonyms of an analyzed token, not including the token itself.
+     */
+    public String[] expand(String token) {
+        return table.get().getOrDefault(token, NONE);
+    }
+
+    /**
+     * Reads the dictionary again and swaps it in. Returns the number of synonym groups.
+     * On failure the current table stays in place.
+     */
+    public int reload() {
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            throw new RuntimeException("Synonym dictionary " + location + " not found");
+        }
+
+        List<Set<String>> groups;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            groups = parse(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load synonym dictionary " + location, e);
+        }
+
+        Map<String, String[]> compiled = new HashMap<>();
+        for (Set<String> group : groups) {
+            for (String term : group) {
+                compiled.put(term, group.stream().filter(other -> !other.equals(term)).toArray(String[]::new));
+            }
+        }
+        table.set(compiled);
+        logger.info("Loaded {} synonym groups covering {} terms from {}", groups.size(), compiled.size(), location);
+        return groups.size();
+    }
+
+    // Helper methods
+    private List<Set<String>> parse(BufferedReader reader) throws IOException {
+        Map<String, Set<String>> groupOf = new HashMap<>();
+        List<Set<String>> groups = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            Set<String> group = new LinkedHashSet<>();
+            for (String entry : line.split(",")) {
+                // Queries are matched token by token, so only single-word entries can apply
+                List<String> tokens = TextAnalyzer.analyze(entry);
+                if (tokens.size() == 1) {
+                    group.add(tokens.get(0));
+                } else if (!entry.isBlank()) {
+                    logger.warn("Skipping synonym entry '{}' on line {}: it must be a single word", entry.strip(), lineNumber);
+                }
+            }
+            if (group.size() < 2) {
+                continue;
+            }
+
+            // A term already in another group joins the two groups
+            for (String term : new ArrayList<>(group)) {
+                Set<String> existing = groupOf.get(term);
+                if (existing != null && existing != group) {
+                    group.addAll(existing);
+                    groups.remove(existing);
+                }
+            }
+            groups.add(group);
+            group.forEach(term -> groupOf.put(term, group));
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,67 @@
+package com.turmericstore.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public final class TextAnalyzer {
+
+    // Words too common in grocery listings to help ranking
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "for", "in", "of", "on", "or", "the", "to", "with"
+    );
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Splits text into lowercase, accent-free tokens. Stop words are dropped so they
+     * neither match nor inflate document lengths.
+     */
+    public static List<String> analyze(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * Lowercase, accent-free words of the text joined by single spaces, stop words included.
+     * Used where the text is matched as typed, e.g. autocomplete prefixes.
+     */
+    public static String normalize(String text) {
+        return String.join(" ", tokenize(text, false));
+    }
+
+    private static List<String> tokenize(String text, boolean dropStopWords) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                addToken(tokens, current, dropStopWords);
+            }
+        }
+        if (current.length() > 0) {
+            addToken(tokens, current, dropStopWords);
+        }
+
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, StringBuilder current, boolean dropStopWords) {
+        String token = current.toString();
+        current.setLength(0);
+        if (!dropStopWords || !STOP_WORDS.contains(token)) {
+            tokens.add(token);
+        }
+    }
+}
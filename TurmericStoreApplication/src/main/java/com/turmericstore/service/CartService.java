@@ -20,12 +20,15 @@ public class CartService {
 
     private final CartRepository cartRepository;
     private final ProductRepository productRepository;
+    private final StockHoldService stockHoldService;
     private final ModelMapperUtil modelMapper;
 
     @Autowired
-    public CartService(CartRepository cartRepository, ProductRepository productRepository, ModelMapperUtil modelMapper) {
+    public CartService(CartRepository cartRepository, ProductRepository productRepository,
+                       StockHoldService stockHoldService, ModelMapperUtil modelMapper) {
         this.cartRepository = cartRepository;
         this.productRepository = productRepository;
+        this.stockHoldService = stockHoldService;
         this.modelMapper = modelMapper;
     }
 
@@ -49,15 +52,17 @@ public class CartService {
             Product product = productRepository.findById(cartItemDTO.getProductId())
                     .orElseThrow(() -> new ResourceNotFoundException("Product", "id", cartItemDTO.getProductId()));
 
-            // Check if the product is in stock
-            if (product.getStock() < cartItemDTO.getQuantity()) {
-                throw new IllegalArgumentException("Product does not have sufficient stock");
-            }
-
             // Get or create cart for user
             Cart cart = cartRepository.findByUserId(userId)
                     .orElseGet(() -> createEmptyCart(userId));
 
+            // Hold stock for everything of this product in the cart, which also checks it is available
+            int cartQuantity = cart.getItems().stream()
+                    .filter(item -> item.getProductId().equals(product.getId()))
+                    .mapToInt(CartItem::getQuantity)
+                    .sum();
+            stockHoldService.hold(userId, product.getId(), cartQuantity + cartItemDTO.getQuantity());
+
             // Enrich cart item with product details
             CartItem cartItem = CartItem.builder()
                     .productId(product.getId())
@@ -96,10 +101,8 @@ public class CartService {
             Product product = productRepository.findById(productId)
                     .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
 
-            // Check if the product is in stock
-            if (product.getStock() < quantity) {
-                throw new IllegalArgumentException("Product does not have sufficient stock");
-            }
+            // Hold the new quantity, which also checks it is available
+            stockHoldService.hold(userId, product.getId(), quantity);
 
             // Update quantity
             cart.updateItemQuantity(productId, quantity);
@@ -128,6 +131,7 @@ public class CartService {
 
             // Save cart
             Cart savedCart = cartRepository.save(cart);
+            stockHoldService.release(userId, productId);
 
             // Convert to DTO and calculate totals
             CartDTO cartDTO = modelMapper.toCartDTO(savedCart);
@@ -147,6 +151,7 @@ public class CartService {
 
             // Clear cart
             cartRepository.clearCartItems(cart.getId());
+            stockHoldService.releaseAll(userId);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to clear cart", e);
         }
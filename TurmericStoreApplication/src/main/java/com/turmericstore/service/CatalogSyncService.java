@@ -0,0 +1,134 @@
+package com.turmericstore.service;
+
+import com.turmericstore.dto.CatalogChangesResponse;
+import com.turmericstore.dto.ProductDTO;
+import com.turmericstore.model.Category;
+import com.turmericstore.model.Deletion;
+import com.turmericstore.model.Product;
+import com.turmericstore.repository.CategoryRepository;
+import com.turmericstore.repository.DeletionLogRepository;
+import com.turmericstore.repository.ProductRepository;
+import com.turmericstore.util.ChangeCursor;
+import com.turmericstore.util.ModelMapperUtil;
+import com.turmericstore.util.SyncToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog delta sync for clients keeping an offline copy: upserts and tombstones since a token.
+ */
+@Service
+public class CatalogSyncService {
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    // Changes are only handed out once this old, so a write whose commit lands shortly after its
+    // updatedAt (clock skew between instances, slow commits) still sorts after the client's cursor
+    private static final long SETTLE_MILLIS = 5000;
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final DeletionLogRepository deletionLogRepository;
+    private final CategoryService categoryService;
+    private final ModelMapperUtil modelMapper;
+
+    @Autowired
+    public CatalogSyncService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                              DeletionLogRepository deletionLogRepository, CategoryService categoryService,
+                              ModelMapperUtil modelMapper) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.deletionLogRepository = deletionLogRepository;
+        this.categoryService = categoryService;
+        this.modelMapper = modelMapper;
+    }
+
+    /**
+     * Up to {@code limit} product changes, category changes and deletions after the token.
+     * Clients apply deletions, then upserts, and repeat while hasMore is set.
+     */
+    public CatalogChangesResponse getChanges(String since, int limit) {
+        SyncToken token = SyncToken.decode(since);
+        long horizon = System.currentTimeMillis() - SETTLE_MILLIS;
+        int batchSize = Math.max(1, Math.min(limit, MAX_BATCH_SIZE));
+
+        // Tombstones older than the retention period may be gone, so such a token cannot be trusted
+        if (token == null || token.oldestTimestamp() < horizon - DeletionLogRepository.RETENTION_MILLIS) {
+            return CatalogChangesResponse.builder()
+                    .resetRequired(true)
+                    .nextToken(SyncToken.at(horizon).encode())
+                    .build();
+        }
+
+        try {
+            List<Product> products = productRepository.findUpdatedAfter(token.getProducts(), horizon, batchSize);
+            List<Category> categories = categoryRepository.findUpdatedAfter(token.getCategories(), horizon, batchSize);
+            List<Deletion> deletions = deletionLogRepository.findAfter(token.getDeletions(), horizon, batchSize);
+
+            SyncToken next = new SyncToken(
+                    advance(products, batchSize, horizon, Product::getUpdatedAt, Product::getId),
+                    advance(categories, batchSize, horizon, Category::getUpdatedAt, Category::getId),
+                    advance(deletions, batchSize, horizon, Deletion::getDeletedAt, Deletion::getId));
+
+            List<String> deletedProductIds = new ArrayList<>();
+            List<String> deletedCategoryIds = new ArrayList<>();
+            for (Deletion deletion : deletions) {
+                if (DeletionLogRepository.PRODUCT.equals(deletion.getEntityType())) {
+                    deletedProductIds.add(deletion.getEntityId());
+                } else if (DeletionLogRepository.CATEGORY.equals(deletion.getEntityType())) {
+                    deletedCategoryIds.add(deletion.getEntityId());
+                }
+            }
+
+            return CatalogChangesResponse.builder()
+                    .products(withCategoryNames(modelMapper.toProductDTOs(products)))
+                    .categories(modelMapper.toCategoryDTOs(categories))
+                    .deletedProductIds(deletedProductIds)
+                    .deletedCategoryIds(deletedCategoryIds)
+                    .nextToken(next.encode())
+                    .hasMore(products.size() == batchSize || categories.size() == batchSize
+                            || deletions.size() == batchSize)
+                    .build();
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to fetch catalog changes", e);
+        }
+    }
+
+    // Helper methods
+    private static <T> ChangeCursor advance(List<T> changes, int batchSize, long horizon,
+                                            Function<T, Long> timestamp, Function<T, String> id) {
+        if (changes.size() < batchSize) {
+            // Everything up to the horizon has been handed out
+            return new ChangeCursor(horizon, null);
+        }
+        T last = changes.get(changes.size() - 1);
+        return new ChangeCursor(timestamp.apply(last), id.apply(last));
+    }
+
+    private List<ProductDTO> withCategoryNames(List<ProductDTO> productDTOs) {
+        Set<String> categoryIds = productDTOs.stream()
+                .map(ProductDTO::getCategoryId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (categoryIds.isEmpty()) {
+            return productDTOs;
+        }
+
+        Map<String, String> categoryNames = categoryService.getCategoryNames(categoryIds);
+        for (ProductDTO productDTO : productDTOs) {
+            if (productDTO.getCategoryId() != null) {
+                productDTO.setCategoryName(categoryNames.get(productDTO.getCategoryId()));
+            }
+        }
+        return productDTOs;
+    }
+}
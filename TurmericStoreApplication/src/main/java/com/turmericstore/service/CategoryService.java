@@ -1,54 +1,64 @@
 package com.turmericstore.service;
 
+import com.turmericstore.catalog.CatalogReplica;
+import com.turmericstore.catalog.CategoryTree;
 import com.turmericstore.dto.CategoryDTO;
+import com.turmericstore.exception.BadRequestException;
 import com.turmericstore.exception.ResourceNotFoundException;
 import com.turmericstore.model.Category;
 import com.turmericstore.repository.CategoryRepository;
 import com.turmericstore.util.ModelMapperUtil;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 @Service
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final CatalogReplica catalogReplica;
+    private final CategoryTree categoryTree;
     private final ModelMapperUtil modelMapper;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository, ModelMapperUtil modelMapper) {
+    public CategoryService(CategoryRepository categoryRepository, CatalogReplica catalogReplica,
+                           CategoryTree categoryTree, ModelMapperUtil modelMapper) {
         this.categoryRepository = categoryRepository;
+        this.catalogReplica = catalogReplica;
+        this.categoryTree = categoryTree;
         this.modelMapper = modelMapper;
     }
 
-    @Cacheable(value = "categories")
+    @Cacheable(value = "categories", key = "@cacheKeys.allCategories()", sync = true)
     public List<CategoryDTO> getAllCategories() {
         try {
-            List<Category> categories = categoryRepository.findAll();
+            List<Category> categories = catalogReplica.findAllCategories();
             return modelMapper.toCategoryDTOs(categories);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to fetch categories", e);
         }
     }
 
-    @Cacheable(value = "categories", key = "'active'")
+    @Cacheable(value = "categories", key = "@cacheKeys.activeCategories()", sync = true)
     public List<CategoryDTO> getAllActiveCategories() {
         try {
-            List<Category> categories = categoryRepository.findAllActive();
+            List<Category> categories = catalogReplica.findActiveCategories();
             return modelMapper.toCategoryDTOs(categories);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to fetch active categories", e);
         }
     }
 
-    @Cacheable(value = "categories", key = "#id")
+    @Cacheable(value = "categories", key = "@cacheKeys.category(#id)", sync = true)
     public CategoryDTO getCategoryById(String id) {
         try {
-            Category category = categoryRepository.findById(id)
+            Category category = catalogReplica.findCategoryById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Category", "id", id));
             return modelMapper.toCategoryDTO(category);
         } catch (ExecutionException | InterruptedException e) {
@@ -56,17 +66,35 @@ public class CategoryService {
         }
     }
 
-    @Cacheable(value = "categories", key = "'parent_' + #parentId")
+    public Map<String, String> getCategoryNames(Collection<String> ids) {
+        try {
+            Map<String, String> names = new HashMap<>();
+            for (Category category : catalogReplica.findCategoriesByIds(ids)) {
+                names.put(category.getId(), category.getName());
+            }
+            return names;
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to fetch category names", e);
+        }
+    }
+
+    /**
+     * The category and every category below it, from the in-memory tree.
+     */
+    public List<String> getSubtreeIds(String categoryId) {
+        return categoryTree.getSubtreeIds(categoryId);
+    }
+
+    @Cacheable(value = "categories", key = "@cacheKeys.childCategories(#parentId)", sync = true)
     public List<CategoryDTO> getCategoriesByParentId(String parentId) {
         try {
-            List<Category> categories = categoryRepository.findByParentId(parentId);
+            List<Category> categories = catalogReplica.findCategoriesByParentId(parentId);
             return modelMapper.toCategoryDTOs(categories);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to fetch subcategories for parent: " + parentId, e);
         }
     }
 
-    @CacheEvict(value = "categories", allEntries = true)
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
         try {
             Category category = modelMapper.toCategory(categoryDTO);
@@ -80,38 +108,43 @@ public class CategoryService {
             }
 
             Category savedCategory = categoryRepository.save(category);
+            catalogReplica.applyCategory(savedCategory);
             return modelMapper.toCategoryDTO(savedCategory);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to create category", e);
         }
     }
 
-    @CacheEvict(value = "categories", allEntries = true)
     public CategoryDTO updateCategory(String id, CategoryDTO categoryDTO) {
         try {
             // Verify the category exists
-            categoryRepository.findById(id)
+            catalogReplica.findCategoryById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Category", "id", id));
 
+            // Moving a category under itself or its own subtree would cut that subtree off the tree
+            if (categoryDTO.getParentId() != null && categoryTree.isAncestorOrSelf(id, categoryDTO.getParentId())) {
+                throw new BadRequestException("A category cannot be moved under itself or one of its subcategories");
+            }
+
             Category category = modelMapper.toCategory(categoryDTO);
             category.setId(id);
 
             Category updatedCategory = categoryRepository.save(category);
+            catalogReplica.applyCategory(updatedCategory);
             return modelMapper.toCategoryDTO(updatedCategory);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to update category with id: " + id, e);
         }
     }
 
-    @CacheEvict(value = "categories", allEntries = true)
     public void deleteCategory(String id) {
         try {
             // Verify the category exists
-            categoryRepository.findById(id)
+            catalogReplica.findCategoryById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Category", "id", id));
 
             // Check if there are any subcategories
-            List<Category> subcategories = categoryRepository.findByParentId(id);
+            List<Category> subcategories = catalogReplica.findCategoriesByParentId(id);
             if (!subcategories.isEmpty()) {
                 throw new IllegalStateException("Cannot delete category with subcategories");
             }
@@ -120,6 +153,7 @@ public class CategoryService {
             // If implemented, this would be added here
 
             categoryRepository.delete(id);
+            catalogReplica.removeCategory(id);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to delete category with id: " + id, e);
         }
@@ -0,0 +1,249 @@
+package com.turmericstore.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.Timestamp;
+import com.turmericstore.exception.BadRequestException;
+import com.turmericstore.exception.ConflictException;
+import com.turmericstore.model.IdempotencyRecord;
+import com.turmericstore.repository.IdempotencyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request sent with an Idempotency-Key at most once and replays its response to retries.
+ * Finished responses are stored in Firestore and cached locally, so a retry usually costs one
+ * cache lookup. Duplicates arriving while the original is still running on this instance wait
+ * for it and share its outcome; on another instance they get a 409 until it finishes, or
+ * until its short lease runs out if it never does. A request rejected with a 4xx wrote
+ * nothing, so its key is freed for a retry; after any other failure the outcome is unknown
+ * and the key stays claimed until the lease runs out.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    // How long a duplicate waits for the original to finish before giving up with a 409
+    private static final long IN_FLIGHT_WAIT_SECONDS = 30;
+    private static final int COMPLETE_ATTEMPTS = 3;
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final Map<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyService(IdempotencyRepository idempotencyRepository, ObjectMapper objectMapper,
+                              @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${app.idempotency.lease:60s}") Duration lease) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lease = lease;
+        this.completed = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(10_000)
+                .build();
+    }
+
+    /**
+     * Runs {@code action} unless a request with the same key was already made, in which case
+     * its response is returned instead. Without a key the action simply runs.
+     *
+     * @param scope        endpoint the key belongs to
+     * @param request      request body; a retry must send the same one
+     * @param responseType type of the response body, for replaying it
+     */
+    public <T> ResponseEntity<T> execute(String scope, String userId, String key, Object request,
+                                         Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        // Keys are scoped per endpoint and user, so nobody can replay someone else's response
+        String id = sha256(scope + '\n' + userId + '\n' + key);
+        String requestHash = sha256(toJson(request));
+
+        IdempotencyRecord cached = completed.getIfPresent(id);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        CompletableFuture<IdempotencyRecord> execution = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(id, execution);
+        if (running != null) {
+            return replay(await(running), requestHash, responseType);
+        }
+
+        try {
+            Optional<IdempotencyRecord> stored = claim(id, requestHash);
+            if (stored.isPresent()) {
+                IdempotencyRecord record = stored.get();
+                if (!Boolean.TRUE.equals(record.getCompleted())) {
+                    throw new ConflictException("A request with this " + HEADER + " is still being processed");
+                }
+                completed.put(id, record);
+                execution.complete(record);
+                return replay(record, requestHash, responseType);
+            }
+
+            ResponseEntity<T> response = runClaimed(id, action);
+            IdempotencyRecord record = IdempotencyRecord.builder()
+                    .id(id)
+                    .requestHash(requestHash)
+                    .completed(true)
+                    .responseStatus(response.getStatusCode().value())
+                    .responseBody(toJson(response.getBody()))
+                    .build();
+            store(record);
+            execution.complete(record);
+            return response;
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, execution);
+        }
+    }
+
+    // Helper methods
+    private Optional<IdempotencyRecord> claim(String id, String requestHash) {
+        long now = System.currentTimeMillis();
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .id(id)
+                .requestHash(requestHash)
+                .completed(false)
+                .leaseUntil(now + lease.toMillis())
+                .createdAt(now)
+                .expireAt(Timestamp.ofTimeMicroseconds(TimeUnit.MILLISECONDS.toMicros(now + ttl.toMillis())))
+                .build();
+        try {
+            return idempotencyRepository.claim(record);
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to claim idempotency key", e);
+        }
+    }
+
+    private <T> ResponseEntity<T> runClaimed(String id, Supplier<ResponseEntity<T>> action) {
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            if (!isClientError(e)) {
+                // E.g. a commit that timed out may still have been applied; a retry must not run it again
+                // until the lease runs out
+                throw e;
+            }
+            // Rejected before anything was written, so free the key for a retry
+            try {
+                idempotencyRepository.delete(id);
+            } catch (ExecutionException | InterruptedException deleteFailure) {
+                logger.warn("Failed to release idempotency key {} after a failed request", id, deleteFailure);
+            }
+            throw e;
+        }
+    }
+
+    private void store(IdempotencyRecord record) {
+        completed.put(record.getId(), record);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                idempotencyRepository.complete(record.getId(), record.getResponseStatus(), record.getResponseBody());
+                return;
+            } catch (ExecutionException | InterruptedException e) {
+                if (e instanceof InterruptedException || attempt == COMPLETE_ATTEMPTS) {
+                    // The request itself succeeded; retries elsewhere get a 409 until the lease runs out
+                    logger.warn("Failed to store the response for idempotency key {}", record.getId(), e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean isClientError(RuntimeException e) {
+        if (e instanceof ResponseStatusException statusException) {
+            return statusException.getStatusCode().is4xxClientError();
+        }
+        ResponseStatus status = AnnotationUtils.findAnnotation(e.getClass(), ResponseStatus.class);
+        return status != null && status.code().is4xxClientError();
+    }
+
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> running) {
+        try {
+            return running.get(IN_FLIGHT_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            // Duplicates fail the same way as the request they waited for
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to process request", e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this " + HEADER + " is still being processed");
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for request", e);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, String requestHash, Class<T> responseType) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new BadRequestException(HEADER + " was already used for a different request");
+        }
+        try {
+            T body = record.getResponseBody() != null ? objectMapper.readValue(record.getResponseBody(), responseType) : null;
+            return ResponseEntity.status(record.getResponseStatus())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to replay stored response", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize idempotent request or response", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,39 +1,68 @@
 package com.turmericstore.service;
 
+import com.google.cloud.firestore.WriteBatch;
 import com.turmericstore.dto.OrderDTO;
-import com.turmericstore.dto.OrderItemDTO;
+import com.turmericstore.dto.PageResponse;
 import com.turmericstore.exception.BadRequestException;
+import com.turmericstore.exception.ConflictException;
 import com.turmericstore.exception.ResourceNotFoundException;
+import com.turmericstore.model.HeldStock;
 import com.turmericstore.model.Order;
 import com.turmericstore.model.OrderItem;
 import com.turmericstore.model.Product;
+import com.turmericstore.repository.MultiGetResult;
 import com.turmericstore.repository.OrderRepository;
 import com.turmericstore.repository.ProductRepository;
+import com.turmericstore.repository.StockHoldRepository;
+import com.turmericstore.repository.StockShard;
+import com.turmericstore.repository.StockShardRepository;
+import com.turmericstore.repository.VersionedProduct;
 import com.turmericstore.util.AppConstants;
+import com.turmericstore.util.FieldProjection;
 import com.turmericstore.util.ModelMapperUtil;
+import com.turmericstore.util.OrderNumberGenerator;
+import com.turmericstore.util.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
+    // Attempts to place an order when the products keep changing between the read and the commit
+    private static final int MAX_PLACE_ATTEMPTS = 3;
+
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final StockShardRepository stockShardRepository;
+    private final StockHoldService stockHoldService;
+    private final StockShardService stockShardService;
     private final UserService userService;
     private final ModelMapperUtil modelMapper;
+    private final OrderNumberGenerator orderNumberGenerator;
 
     @Autowired
     public OrderService(OrderRepository orderRepository, ProductRepository productRepository,
-                        UserService userService, ModelMapperUtil modelMapper) {
+                        StockShardRepository stockShardRepository, StockHoldService stockHoldService,
+                        StockShardService stockShardService,
+                        UserService userService, ModelMapperUtil modelMapper,
+                        OrderNumberGenerator orderNumberGenerator) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
+        this.stockShardRepository = stockShardRepository;
+        this.stockHoldService = stockHoldService;
+        this.stockShardService = stockShardService;
         this.userService = userService;
         this.modelMapper = modelMapper;
+        this.orderNumberGenerator = orderNumberGenerator;
     }
 
     public List<OrderDTO> getAllOrders() {
@@ -52,6 +81,48 @@ public class OrderService {
         }
     }
 
+    public PageResponse<OrderDTO> getOrdersPage(String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+        try {
+            List<Order> slice = orderRepository.findPage(PageCursor.decode(cursor), pageSize + 1);
+            return PageResponse.fromSlice(slice, pageSize,
+                    order -> new PageCursor(order.getCreatedAt(), order.getId()),
+                    page -> {
+                        List<OrderDTO> orderDTOs = page.stream()
+                                .map(modelMapper::toOrderDTO)
+                                .collect(Collectors.toList());
+
+                        // Enrich with user information
+                        enrichOrderDTOs(orderDTOs);
+
+                        return orderDTOs;
+                    });
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to fetch orders page", e);
+        }
+    }
+
+    /**
+     * Same page as {@link #getOrdersPage(String, int)}, limited to the requested fields.
+     * Only the fields behind them are read from Firestore.
+     */
+    public PageResponse<Map<String, Object>> getOrdersPage(String cursor, int size, String fields) {
+        int pageSize = Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+        // createdAt is always read because the next page cursor is built from it
+        FieldProjection projection = modelMapper.orderProjection(fields, "createdAt");
+        try {
+            List<Order> slice = orderRepository.findPage(PageCursor.decode(cursor), pageSize + 1,
+                    projection.getDocumentFields());
+            return PageResponse.fromSlice(slice, pageSize,
+                    order -> new PageCursor(order.getCreatedAt(), order.getId()),
+                    page -> page.stream()
+                            .map(order -> modelMapper.toOrderFields(modelMapper.toOrderDTO(order), projection))
+                            .collect(Collectors.toList()));
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to fetch orders page", e);
+        }
+    }
+
     public OrderDTO getOrderById(String id) {
         try {
             Order order = orderRepository.findById(id)
@@ -105,17 +176,9 @@ public class OrderService {
                 throw new BadRequestException("Order must have at least one item");
             }
 
-            // Check if products exist and are in stock
-            validateOrderItems(orderDTO.getItems());
-
             // Create the order entity
             Order order = modelMapper.toOrder(orderDTO);
 
-            // Generate order number if not provided
-            if (order.getOrderNumber() == null) {
-                order.setOrderNumber(generateOrderNumber());
-            }
-
             // Set initial status if not provided
             if (order.getStatus() == null) {
                 order.setStatus(Order.OrderStatus.PENDING);
@@ -126,14 +189,8 @@ public class OrderService {
                 order.setPaymentStatus(Order.PaymentStatus.PENDING);
             }
 
-            // Calculate order totals
-            calculateOrderTotals(order);
-
-            // Save the order
-            Order savedOrder = orderRepository.save(order);
-
-            // Update product stock (in a real application, this might be done in a transaction)
-            updateProductStock(savedOrder.getItems());
+            // Price, save the order and reduce stock in one commit
+            Order savedOrder = placeOrder(order);
 
             return modelMapper.toOrderDTO(savedOrder);
         } catch (ExecutionException | InterruptedException e) {
@@ -196,20 +253,138 @@ public class OrderService {
     }
 
     // Helper methods
-    private String generateOrderNumber() {
-        // Simple implementation - in a real app you might want a more sophisticated approach
-        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    /**
+     * Checks stock and creates the order with its stock decrements in one batched commit.
+     * Each decrement only applies if the product (or, for a sharded product, the shard) is
+     * unchanged since the stock check, so two concurrent orders cannot both take the last
+     * units; the loser re-reads and checks again. Stock other users hold in their carts is
+     * not available, and the user's own holds are released in the same commit. A sharded
+     * product is checked shard by shard against the holds charged to each, so the shards an
+     * order decrements are exactly the ones its check relied on. Each attempt
+     * takes a fresh order number, so one that turns out to be taken is simply retried too.
+     */
+    private Order placeOrder(Order order) throws ExecutionException, InterruptedException {
+        // A product listed on several lines is reserved once, for the combined quantity
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : order.getItems()) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new BadRequestException("Each order item needs a product and a positive quantity");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        for (int attempt = 0; attempt < MAX_PLACE_ATTEMPTS; attempt++) {
+            long now = System.currentTimeMillis();
+            Map<String, StockedProduct> products = checkStock(order.getUserId(), quantities, now);
+            priceOrder(order, products);
+            order.setOrderNumber(orderNumberGenerator.next());
+            boolean committed = orderRepository.create(order, batch -> {
+                quantities.forEach((productId, quantity) -> {
+                    StockedProduct product = products.get(productId);
+                    String holdId = holdId(order.getUserId(), productId);
+                    if (product.shards == null) {
+                        productRepository.reserveStock(batch, product.versioned, quantity, holdId);
+                    } else {
+                        reserveFromShards(batch, product.shards, quantity, holdId, now);
+                    }
+                });
+                if (order.getUserId() != null) {
+                    stockHoldService.consume(batch, order.getUserId(), quantities.keySet());
+                }
+            });
+            if (committed) {
+                if (order.getUserId() != null) {
+                    stockHoldService.consumed(order.getUserId(), quantities.keySet());
+                }
+                stockShardService.shardsChanged(products.values().stream()
+                        .filter(product -> product.shards != null)
+                        .map(product -> product.versioned.getProduct().getId())
+                        .collect(Collectors.toList()));
+                return order;
+            }
+        }
+        throw new ConflictException("Stock changed while the order was being placed; please try again");
     }
 
-    private void validateOrderItems(List<OrderItemDTO> items) throws ExecutionException, InterruptedException {
-        for (OrderItemDTO item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", item.getProductId()));
+    /**
+     * Reads everything the order depends on: the products in one batched get and the shards of
+     * any hot products among them. Holds are kept on the same documents, so these reads are
+     * also the holds, and a hold written after them changes a document the order's
+     * preconditions check.
+     */
+    private Map<String, StockedProduct> checkStock(String userId, Map<String, Integer> quantities, long now)
+            throws ExecutionException, InterruptedException {
+        MultiGetResult<VersionedProduct> result = productRepository.findVersionedByIds(new ArrayList<>(quantities.keySet()));
+        if (!result.isComplete()) {
+            throw new ResourceNotFoundException("Product", "id", result.getMissingIds().get(0));
+        }
 
-            if (product.getStock() < item.getQuantity()) {
+        Map<String, Integer> shardCounts = new HashMap<>();
+        for (VersionedProduct versioned : result.getFound()) {
+            Integer stockShards = versioned.getProduct().getStockShards();
+            if (stockShards != null && stockShards > 0) {
+                shardCounts.put(versioned.getProduct().getId(), stockShards);
+            }
+        }
+        Map<String, List<StockShard>> shards = stockShardRepository.findShards(shardCounts);
+
+        Map<String, StockedProduct> productsById = new HashMap<>();
+        for (VersionedProduct versioned : result.getFound()) {
+            Product product = versioned.getProduct();
+            if (Boolean.FALSE.equals(product.getActive())) {
+                throw new BadRequestException("Product '" + product.getName() + "' is no longer available");
+            }
+            // Stock held in other users' carts cannot go to this order
+            String holdId = holdId(userId, product.getId());
+            List<StockShard> productShards = shards.get(product.getId());
+            int available;
+            if (productShards != null) {
+                available = productShards.stream()
+                        .mapToInt(shard -> Math.max(0, shard.freeStock(holdId, now)))
+                        .sum();
+            } else {
+                int stock = product.getStock() != null ? product.getStock() : 0;
+                available = stock - HeldStock.sumActive(product.getHeldStock(), holdId, now);
+            }
+            if (available < quantities.get(product.getId())) {
                 throw new BadRequestException("Product '" + product.getName() + "' does not have sufficient stock");
             }
+            productsById.put(product.getId(), new StockedProduct(versioned, productShards));
+        }
+        return productsById;
+    }
+
+    /**
+     * Takes the quantity from the free stock of a randomly chosen shard, continuing through the
+     * others while it runs short, so concurrent orders for the same product mostly write
+     * different shards. The buyer's own hold comes off every shard it was charged to.
+     */
+    private void reserveFromShards(WriteBatch batch, List<StockShard> shards, int quantity, String holdId, long now) {
+        int start = ThreadLocalRandom.current().nextInt(shards.size());
+        int remaining = quantity;
+        for (int i = 0; i < shards.size(); i++) {
+            StockShard shard = shards.get((start + i) % shards.size());
+            int taken = Math.min(Math.max(0, shard.freeStock(holdId, now)), remaining);
+            if (taken > 0) {
+                stockShardRepository.reserve(batch, shard, taken, holdId);
+                remaining -= taken;
+            } else if (holdId != null && shard.getHeldStock().containsKey(holdId)) {
+                stockShardRepository.release(batch, shard, holdId);
+            }
+        }
+    }
+
+    // Lines are priced from the products just read, never from what the client sent
+    private void priceOrder(Order order, Map<String, StockedProduct> products) {
+        for (OrderItem item : order.getItems()) {
+            Product product = products.get(item.getProductId()).versioned.getProduct();
+            item.setProductName(product.getName());
+            item.setProductImageUrl(product.getImageUrls() != null && !product.getImageUrls().isEmpty()
+                    ? product.getImageUrls().get(0) : null);
+            item.setUnit(product.getUnit());
+            item.setPrice(product.isDiscounted() ? product.getDiscountPrice() : product.getPrice());
         }
+        calculateOrderTotals(order);
     }
 
     private void calculateOrderTotals(Order order) {
@@ -242,19 +417,6 @@ public class OrderService {
         }
     }
 
-    private void updateProductStock(List<OrderItem> items) throws ExecutionException, InterruptedException {
-        for (OrderItem item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", item.getProductId()));
-
-            // Reduce stock
-            product.setStock(product.getStock() - item.getQuantity());
-
-            // Save product
-            productRepository.save(product);
-        }
-    }
-
     private void enrichOrderDTO(OrderDTO orderDTO) {
         try {
             if (orderDTO.getUserId() != null) {
@@ -270,4 +432,19 @@ public class OrderService {
     private void enrichOrderDTOs(List<OrderDTO> orderDTOs) {
         orderDTOs.forEach(this::enrichOrderDTO);
     }
+
+    private static String holdId(String userId, String productId) {
+        return userId != null ? StockHoldRepository.holdId(userId, productId) : null;
+    }
+
+    // A product as read for an order, with its shards when its stock is sharded
+    private static final class StockedProduct {
+        private final VersionedProduct versioned;
+        private final List<StockShard> shards;
+
+        private StockedProduct(VersionedProduct versioned, List<StockShard> shards) {
+            this.versioned = versioned;
+            this.shards = shards;
+        }
+    }
 }
@@ -104,4 +104,10 @@ public class PaymentRepository {
         );
         future.get(); // Wait for the operation to complete
     }
+
+    public long count() throws ExecutionException, InterruptedException {
+        // Aggregation query: billed per batch of index entries, no documents are downloaded
+        ApiFuture<AggregateQuerySnapshot> future = paymentCollection.count().get();
+        return future.get().getCount();
+    }
 }
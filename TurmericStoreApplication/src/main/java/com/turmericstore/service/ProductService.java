@@ -1,46 +1,137 @@
 package com.turmericstore.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.google.api.core.ApiFuture;
+import com.turmericstore.catalog.CatalogReplica;
+import com.turmericstore.catalog.ListingQuery;
+import com.turmericstore.catalog.ListingResult;
+import com.turmericstore.catalog.ProductListingIndex;
+import com.turmericstore.dto.PageResponse;
 import com.turmericstore.dto.ProductDTO;
+import com.turmericstore.dto.ProductListingResponse;
+import com.turmericstore.dto.SuggestionDTO;
+import com.turmericstore.exception.BadRequestException;
 import com.turmericstore.exception.ResourceNotFoundException;
 import com.turmericstore.model.Product;
 import com.turmericstore.repository.ProductRepository;
+import com.turmericstore.repository.StockShardRepository;
+import com.turmericstore.search.ProductSearchIndex;
+import com.turmericstore.search.SuggestionIndex;
+import com.turmericstore.util.AppConstants;
+import com.turmericstore.util.FieldProjection;
 import com.turmericstore.util.ModelMapperUtil;
+import com.turmericstore.util.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    private static final Map<String, ListingQuery.SortKey> LISTING_SORT_KEYS = Map.of(
+            "price", ListingQuery.SortKey.PRICE,
+            "effectivePrice", ListingQuery.SortKey.EFFECTIVE_PRICE,
+            "discount", ListingQuery.SortKey.DISCOUNT,
+            "createdAt", ListingQuery.SortKey.CREATED_AT,
+            "stock", ListingQuery.SortKey.STOCK);
+
+    // Products held in memory at once while exporting; the next batch is fetched while one is written
+    private static final int EXPORT_BATCH_SIZE = 500;
+
     private final ProductRepository productRepository;
+    private final StockShardRepository stockShardRepository;
+    private final CatalogReplica catalogReplica;
     private final CategoryService categoryService;
     private final ModelMapperUtil modelMapper;
+    private final ProductSearchIndex searchIndex;
+    private final ProductListingIndex listingIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public ProductService(ProductRepository productRepository, CategoryService categoryService, ModelMapperUtil modelMapper) {
+    public ProductService(ProductRepository productRepository, StockShardRepository stockShardRepository,
+                          CatalogReplica catalogReplica, CategoryService categoryService, ModelMapperUtil modelMapper,
+                          ProductSearchIndex searchIndex, ProductListingIndex listingIndex,
+                          SuggestionIndex suggestionIndex, ObjectMapper objectMapper) {
         this.productRepository = productRepository;
+        this.stockShardRepository = stockShardRepository;
+        this.catalogReplica = catalogReplica;
         this.categoryService = categoryService;
         this.modelMapper = modelMapper;
+        this.searchIndex = searchIndex;
+        this.listingIndex = listingIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.objectMapper = objectMapper;
     }
 
-    @Cacheable(value = "products")
+    @Cacheable(value = "products", key = "@cacheKeys.allProducts()", sync = true)
     public List<ProductDTO> getAllProducts() {
         try {
-            List<Product> products = productRepository.findAll();
+            List<Product> products = catalogReplica.findAllProducts();
             return enrichProductDTOs(modelMapper.toProductDTOs(products));
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to fetch products", e);
         }
     }
 
-    @Cacheable(value = "product-details", key = "#id")
+    public PageResponse<ProductDTO> getProductsPage(String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+        try {
+            List<Product> slice = productRepository.findPage(PageCursor.decode(cursor), pageSize + 1);
+            return PageResponse.fromSlice(slice, pageSize,
+                    product -> new PageCursor(product.getCreatedAt(), product.getId()),
+                    page -> enrichProductDTOs(modelMapper.toProductDTOs(page)));
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to fetch products page", e);
+        }
+    }
+
+    /**
+     * Same page as {@link #getProductsPage(String, int)}, limited to the requested fields.
+     * Only the fields behind them are read from Firestore.
+     */
+    public PageResponse<Map<String, Object>> getProductsPage(String cursor, int size, String fields) {
+        int pageSize = Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+        // createdAt is always read because the next page cursor is built from it
+        FieldProjection projection = modelMapper.productProjection(fields, "createdAt");
+        try {
+            List<Product> slice = productRepository.findPage(PageCursor.decode(cursor), pageSize + 1,
+                    projection.getDocumentFields());
+            return PageResponse.fromSlice(slice, pageSize,
+                    product -> new PageCursor(product.getCreatedAt(), product.getId()),
+                    page -> {
+                        List<ProductDTO> productDTOs = modelMapper.toProductDTOs(page);
+                        if (projection.includes("categoryName")) {
+                            enrichProductDTOs(productDTOs);
+                        }
+                        return productDTOs.stream()
+                                .map(productDTO -> modelMapper.toProductFields(productDTO, projection))
+                                .collect(Collectors.toList());
+                    });
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to fetch products page", e);
+        }
+    }
+
+    @Cacheable(value = "product-details", key = "@cacheKeys.productDetails(#id)", sync = true)
     public ProductDTO getProductById(String id) {
         try {
-            Product product = productRepository.findById(id)
+            Product product = catalogReplica.findProductById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
             return enrichProductDTO(modelMapper.toProductDTO(product));
         } catch (ExecutionException | InterruptedException e) {
@@ -48,45 +139,170 @@ public class ProductService {
         }
     }
 
-    @Cacheable(value = "products", key = "'category_' + #categoryId")
+    @Cacheable(value = "products", key = "@cacheKeys.categoryProducts(#categoryId)", sync = true)
     public List<ProductDTO> getProductsByCategory(String categoryId) {
         try {
-            List<Product> products = productRepository.findByCategoryId(categoryId);
+            List<Product> products = catalogReplica.findProductsByCategoryId(categoryId);
             return enrichProductDTOs(modelMapper.toProductDTOs(products));
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to fetch products for category: " + categoryId, e);
         }
     }
 
-    @Cacheable(value = "products", key = "'featured'")
-    public List<ProductDTO> getFeaturedProducts() {
+    /**
+     * Products in the category and all of its subcategories, e.g. "Spices" including
+     * "Spices > Turmeric > Organic". Answered from the replica's category postings.
+     */
+    public List<ProductDTO> getProductsInCategoryTree(String categoryId) {
         try {
-            List<Product> products = productRepository.findByFeatured(true);
+            catalogReplica.findCategoryById(categoryId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Category", "id", categoryId));
+
+            List<Product> products = new ArrayList<>();
+            for (String id : categoryService.getSubtreeIds(categoryId)) {
+                products.addAll(catalogReplica.findProductsByCategoryId(id));
+            }
             return enrichProductDTOs(modelMapper.toProductDTOs(products));
         } catch (ExecutionException | InterruptedException e) {
-            throw new RuntimeException("Failed to fetch featured products", e);
+            throw new RuntimeException("Failed to fetch products for category tree: " + categoryId, e);
         }
     }
 
-    public List<ProductDTO> searchProducts(String keyword) {
+    @Cacheable(value = "products", key = "@cacheKeys.featuredProducts()", sync = true)
+    public List<ProductDTO> getFeaturedProducts() {
         try {
-            List<Product> products = productRepository.search(keyword);
+            List<Product> products = catalogReplica.findFeaturedProducts();
             return enrichProductDTOs(modelMapper.toProductDTOs(products));
         } catch (ExecutionException | InterruptedException e) {
-            throw new RuntimeException("Failed to search products with keyword: " + keyword, e);
+            throw new RuntimeException("Failed to fetch featured products", e);
         }
     }
 
+    public List<ProductDTO> searchProducts(String keyword) {
+        // Served from the in-memory index; no Firestore reads per query
+        List<Product> products = searchIndex.search(keyword);
+        return enrichProductDTOs(modelMapper.toProductDTOs(products));
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        // Answered from the prefix dictionary alone, without touching the product DTOs
+        return suggestionIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * Search results narrowed by facet filters ("name:value"), one window at a time,
+     * with value counts for every facet over the full result set.
+     */
+    public ProductListingResponse searchProductsFaceted(String keyword, List<String> facet, int offset, int limit) {
+        Map<String, Set<String>> facets = parseFacets(facet);
+        int windowOffset = Math.max(0, offset);
+        int windowLimit = Math.max(1, Math.min(limit, AppConstants.MAX_PAGE_SIZE));
+
+        ListingResult result = listingIndex.refine(searchIndex.search(keyword), facets, true, windowOffset, windowLimit);
+        return ProductListingResponse.builder()
+                .items(enrichProductDTOs(modelMapper.toProductDTOs(result.getProducts())))
+                .total(result.getTotal())
+                .offset(windowOffset)
+                .limit(windowLimit)
+                .facets(result.getFacetCounts())
+                .build();
+    }
+
+    /**
+     * Filtered, sorted window over the active products, answered by the listing index.
+     * Sort is one of price, effectivePrice, discount, createdAt or stock; without a direction,
+     * createdAt and discount list highest first and the others lowest first.
+     * Facet filters take the form "name:value", e.g. "brand:Organic India" or "attributes.size:500g".
+     */
+    public ProductListingResponse getProductListing(String categoryId, boolean includeDescendants,
+                                                    Double minPrice, Double maxPrice,
+                                                    boolean discountedOnly, boolean inStockOnly,
+                                                    List<String> facet, boolean facetCounts,
+                                                    String sort, String direction, int offset, int limit) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new BadRequestException("minPrice must not be greater than maxPrice");
+        }
+        ListingQuery.SortKey sortKey = LISTING_SORT_KEYS.get(sort);
+        if (sortKey == null) {
+            throw new BadRequestException("Unsupported sort: " + sort);
+        }
+        boolean descending;
+        if (direction == null) {
+            descending = sortKey == ListingQuery.SortKey.CREATED_AT || sortKey == ListingQuery.SortKey.DISCOUNT;
+        } else if ("asc".equalsIgnoreCase(direction) || "desc".equalsIgnoreCase(direction)) {
+            descending = "desc".equalsIgnoreCase(direction);
+        } else {
+            throw new BadRequestException("Unsupported sort direction: " + direction);
+        }
+
+        int windowOffset = Math.max(0, offset);
+        int windowLimit = Math.max(1, Math.min(limit, AppConstants.MAX_PAGE_SIZE));
+        ListingQuery query = ListingQuery.builder()
+                .categoryIds(categoryId == null ? null
+                        : includeDescendants ? categoryService.getSubtreeIds(categoryId) : List.of(categoryId))
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .discountedOnly(discountedOnly)
+                .inStockOnly(inStockOnly)
+                .facets(parseFacets(facet))
+                .facetCounts(facetCounts)
+                .sortKey(sortKey)
+                .descending(descending)
+                .offset(windowOffset)
+                .limit(windowLimit)
+                .build();
+
+        ListingResult result = listingIndex.query(query);
+        return ProductListingResponse.builder()
+                .items(enrichProductDTOs(modelMapper.toProductDTOs(result.getProducts())))
+                .total(result.getTotal())
+                .offset(windowOffset)
+                .limit(windowLimit)
+                .facets(result.getFacetCounts())
+                .build();
+    }
+
     public List<ProductDTO> getProductsByIds(List<String> ids) {
         try {
-            List<Product> products = productRepository.findByIds(ids);
+            List<Product> products = catalogReplica.findProductsByIds(ids);
             return enrichProductDTOs(modelMapper.toProductDTOs(products));
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to fetch products by ids", e);
         }
     }
 
-    @CacheEvict(value = {"products", "product-details"}, allEntries = true)
+    /**
+     * Writes the whole catalog to the stream batch by batch, as NDJSON or as one JSON array.
+     * Heap use is bounded by the batch size and the first bytes leave after the first batch.
+     */
+    public void exportProducts(OutputStream out, boolean ndjson) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (SequenceWriter sequence = ndjson
+                ? writer.withRootValueSeparator("\n").writeValues(out)
+                : writer.writeValuesAsArray(out)) {
+            ApiFuture<List<Product>> next = productRepository.findBatchAfter(null, EXPORT_BATCH_SIZE);
+            while (next != null) {
+                List<Product> batch = next.get();
+                // Request the following batch before writing this one so the two overlap
+                next = batch.size() < EXPORT_BATCH_SIZE
+                        ? null
+                        : productRepository.findBatchAfter(batch.get(batch.size() - 1).getId(), EXPORT_BATCH_SIZE);
+
+                for (ProductDTO productDTO : enrichProductDTOs(modelMapper.toProductDTOs(batch))) {
+                    sequence.write(productDTO);
+                }
+                sequence.flush();
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to export products", e);
+        }
+
+        if (ndjson) {
+            out.write('\n');
+        }
+        out.flush();
+    }
+
     public ProductDTO createProduct(ProductDTO productDTO) {
         try {
             Product product = modelMapper.toProduct(productDTO);
@@ -95,42 +311,70 @@ public class ProductService {
             product.setActive(true);
 
             Product savedProduct = productRepository.save(product);
+            catalogReplica.applyProduct(savedProduct);
             return enrichProductDTO(modelMapper.toProductDTO(savedProduct));
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to create product", e);
         }
     }
 
-    @CacheEvict(value = {"products", "product-details"}, allEntries = true)
     public ProductDTO updateProduct(String id, ProductDTO productDTO) {
         try {
             // Verify the product exists
-            productRepository.findById(id)
+            catalogReplica.findProductById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
 
             Product product = modelMapper.toProduct(productDTO);
             product.setId(id);
-
+            // Sharding and a sharded product's stock are kept as stored, not as the replica last saw them
             Product updatedProduct = productRepository.save(product);
+            catalogReplica.applyProduct(updatedProduct);
             return enrichProductDTO(modelMapper.toProductDTO(updatedProduct));
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to update product with id: " + id, e);
         }
     }
 
-    @CacheEvict(value = {"products", "product-details"}, allEntries = true)
     public void deleteProduct(String id) {
         try {
             // Verify the product exists
-            productRepository.findById(id)
+            catalogReplica.findProductById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
 
             productRepository.delete(id);
+            catalogReplica.removeProduct(id);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to delete product with id: " + id, e);
         }
     }
 
+    /**
+     * Splits a hot product's stock across {@code shards} shard documents so concurrent orders
+     * for it commit in parallel, or folds it back into the product with 0 shards.
+     * The current total is kept unless {@code stock} sets a new one.
+     */
+    public ProductDTO configureStockShards(String id, int shards, Integer stock) {
+        if (shards < 0 || shards > StockShardRepository.MAX_SHARDS) {
+            throw new BadRequestException("Shards must be between 0 and " + StockShardRepository.MAX_SHARDS);
+        }
+        if (stock != null && stock < 0) {
+            throw new BadRequestException("Stock must be greater than or equal to 0");
+        }
+
+        try {
+            if (stockShardRepository.configure(id, shards, stock) == null) {
+                throw new ResourceNotFoundException("Product", "id", id);
+            }
+
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+            catalogReplica.applyProduct(product);
+            return enrichProductDTO(modelMapper.toProductDTO(product));
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to configure stock shards for product with id: " + id, e);
+        }
+    }
+
     public long countProducts() {
         try {
             return productRepository.count();
@@ -141,19 +385,46 @@ public class ProductService {
 
     // Helper methods for enriching DTOs with additional information
     private ProductDTO enrichProductDTO(ProductDTO productDTO) {
-        if (productDTO.getCategoryId() != null) {
-            try {
-                String categoryName = categoryService.getCategoryById(productDTO.getCategoryId()).getName();
-                productDTO.setCategoryName(categoryName);
-            } catch (Exception e) {
-                // If category not found, just leave categoryName as null
-            }
-        }
+        enrichProductDTOs(List.of(productDTO));
         return productDTO;
     }
 
     private List<ProductDTO> enrichProductDTOs(List<ProductDTO> productDTOs) {
-        productDTOs.forEach(this::enrichProductDTO);
+        // Resolve every distinct category in one lookup instead of one per product
+        Set<String> categoryIds = productDTOs.stream()
+                .map(ProductDTO::getCategoryId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (categoryIds.isEmpty()) {
+            return productDTOs;
+        }
+
+        // Products whose category is missing just keep a null categoryName
+        Map<String, String> categoryNames = categoryService.getCategoryNames(categoryIds);
+        for (ProductDTO productDTO : productDTOs) {
+            if (productDTO.getCategoryId() != null) {
+                productDTO.setCategoryName(categoryNames.get(productDTO.getCategoryId()));
+            }
+        }
         return productDTOs;
     }
+
+    private static Map<String, Set<String>> parseFacets(List<String> facet) {
+        Map<String, Set<String>> facets = new LinkedHashMap<>();
+        if (facet == null) {
+            return facets;
+        }
+        for (String filter : facet) {
+            int separator = filter.indexOf(':');
+            if (separator <= 0 || separator == filter.length() - 1) {
+                throw new BadRequestException("Facet filters take the form name:value");
+            }
+            String name = filter.substring(0, separator).trim();
+            if (!ProductListingIndex.isFacet(name)) {
+                throw new BadRequestException("Unknown facet: " + name);
+            }
+            facets.computeIfAbsent(name, n -> new LinkedHashSet<>()).add(filter.substring(separator + 1));
+        }
+        return facets;
+    }
 }
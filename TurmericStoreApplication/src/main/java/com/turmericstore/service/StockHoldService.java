@@ -0,0 +1,212 @@
+package com.turmericstore.service;
+
+import com.google.cloud.firestore.WriteBatch;
+import com.turmericstore.exception.BadRequestException;
+import com.turmericstore.exception.ResourceNotFoundException;
+import com.turmericstore.model.StockHold;
+import com.turmericstore.repository.StockHoldRepository;
+import com.turmericstore.util.HierarchicalTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-boxed stock holds for cart items. Adding to the cart holds the quantity for the hold
+ * TTL; available-to-promise stock is stock minus everyone else's active holds, and checkout
+ * turns the user's holds into stock decrements. Expiry timers live in a hierarchical timing
+ * wheel ticked once a second, so lapsed holds are deleted without polling Firestore. The
+ * deletes run in batches on their own thread, so a burst of expiries never delays a tick.
+ */
+@Service
+public class StockHoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockHoldService.class);
+
+    private static final long TICK_MILLIS = 1000;
+    // 64 one-second buckets per wheel: a 15 minute TTL lands on the second wheel
+    private static final int WHEEL_SIZE = 64;
+    // Holds read or deleted per Firestore round trip
+    private static final int BATCH_SIZE = 500;
+
+    private final StockHoldRepository stockHoldRepository;
+    private final Duration holdTtl;
+
+    private final HierarchicalTimingWheel<String> expiries =
+            new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+    // Pending expiry per hold id; renewing a hold replaces its timer
+    private final Map<String, HierarchicalTimingWheel<String>.Timeout> timers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-hold-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService releaser = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-hold-release");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public StockHoldService(StockHoldRepository stockHoldRepository,
+                            @Value("${app.inventory.hold-ttl:15m}") Duration holdTtl) {
+        this.stockHoldRepository = stockHoldRepository;
+        this.holdTtl = holdTtl;
+    }
+
+    @PostConstruct
+    public void start() {
+        // Holds left by a previous run get timers too; those already lapsed fire on the first tick
+        releaser.execute(this::scheduleExistingHolds);
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        releaser.shutdownNow();
+    }
+
+    /**
+     * Holds {@code quantity} of a product for the user, replacing any hold they already had on it
+     * and restarting its TTL.
+     */
+    public StockHold hold(String userId, String productId, int quantity) {
+        long now = System.currentTimeMillis();
+        StockHold hold = StockHold.builder()
+                .userId(userId)
+                .productId(productId)
+                .quantity(quantity)
+                .createdAt(now)
+                .expiresAt(now + holdTtl.toMillis())
+                .build();
+        try {
+            Integer available = stockHoldRepository.hold(hold);
+            if (available == null) {
+                throw new ResourceNotFoundException("Product", "id", productId);
+            }
+            if (available < quantity) {
+                throw new BadRequestException("Product does not have sufficient stock");
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to hold stock for product: " + productId, e);
+        }
+
+        schedule(hold.getId(), hold.getExpiresAt());
+        return hold;
+    }
+
+    public void release(String userId, String productId) {
+        String id = StockHoldRepository.holdId(userId, productId);
+        try {
+            stockHoldRepository.release(userId, productId);
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to release stock hold: " + id, e);
+        }
+        cancel(id);
+    }
+
+    public void releaseAll(String userId) {
+        try {
+            for (StockHold hold : stockHoldRepository.findByUserId(userId)) {
+                stockHoldRepository.release(userId, hold.getProductId());
+                cancel(hold.getId());
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to release stock holds for user: " + userId, e);
+        }
+    }
+
+    /**
+     * Adds the deletion of the user's holds on these products to the batch that decrements their
+     * stock; their heldStock entries come off with the decrements themselves.
+     */
+    public void consume(WriteBatch batch, String userId, Collection<String> productIds) {
+        for (String productId : productIds) {
+            stockHoldRepository.delete(batch, StockHoldRepository.holdId(userId, productId));
+        }
+    }
+
+    /**
+     * Drops the timers of holds consumed by a committed batch.
+     */
+    public void consumed(String userId, Collection<String> productIds) {
+        for (String productId : productIds) {
+            cancel(StockHoldRepository.holdId(userId, productId));
+        }
+    }
+
+    // Helper methods
+    private void schedule(String id, long expiresAt) {
+        timers.compute(id, (key, previous) -> {
+            if (previous != null) {
+                previous.cancel();
+            }
+            return expiries.schedule(id, expiresAt);
+        });
+    }
+
+    private void cancel(String id) {
+        HierarchicalTimingWheel<String>.Timeout timeout = timers.remove(id);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        List<String> due = expiries.advance(now);
+        if (due.isEmpty()) {
+            return;
+        }
+        for (String id : due) {
+            // A hold renewed since this timer was set already has its next one
+            timers.computeIfPresent(id, (key, timeout) -> timeout.getDeadline() <= now ? null : timeout);
+        }
+        releaser.execute(() -> releaseExpired(due));
+    }
+
+    private void releaseExpired(List<String> ids) {
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<String> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            try {
+                stockHoldRepository.deleteExpired(batch);
+            } catch (ExecutionException | InterruptedException | RuntimeException e) {
+                logger.warn("Failed to release {} expired stock holds", batch.size(), e);
+            }
+        }
+    }
+
+    private void scheduleExistingHolds() {
+        try {
+            String afterId = null;
+            List<StockHold> page;
+            do {
+                page = stockHoldRepository.findExpiryPage(afterId, BATCH_SIZE);
+                for (StockHold hold : page) {
+                    if (hold.getExpiresAt() != null) {
+                        timers.computeIfAbsent(hold.getId(), id -> expiries.schedule(id, hold.getExpiresAt()));
+                    }
+                    afterId = hold.getId();
+                }
+            } while (page.size() == BATCH_SIZE);
+        } catch (ExecutionException | InterruptedException | RuntimeException e) {
+            logger.warn("Failed to load existing stock holds; the rest lapse without being deleted", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.turmericstore.service;
+
+import com.turmericstore.repository.StockShardRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the stock field of sharded products close to the sum of their shards. Orders only
+ * write shards, so that every reader of the product document (catalog replica, listing,
+ * search and suggestion indexes, response caches, delta sync) would otherwise see the total
+ * as of the last reconfiguration. Copying the total is coalesced per product to at most once
+ * per interval, so a flash sale still writes the product document only every few seconds.
+ */
+@Service
+public class StockShardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockShardService.class);
+
+    private final StockShardRepository stockShardRepository;
+    private final Duration interval;
+
+    // Products with a copy already scheduled; later orders ride along with it
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-shard-totals");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public StockShardService(StockShardRepository stockShardRepository,
+                             @Value("${app.inventory.shard-total-interval:5s}") Duration interval) {
+        this.stockShardRepository = stockShardRepository;
+        this.interval = interval;
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Schedules the shard totals of these products to be copied onto them.
+     */
+    public void shardsChanged(Collection<String> productIds) {
+        for (String productId : productIds) {
+            if (pending.add(productId)) {
+                scheduler.schedule(() -> syncTotal(productId), interval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Helper methods
+    private void syncTotal(String productId) {
+        // Removed first, so an order committed while copying schedules the next copy
+        pending.remove(productId);
+        try {
+            stockShardRepository.syncTotal(productId);
+        } catch (ExecutionException | InterruptedException | RuntimeException e) {
+            logger.warn("Failed to copy the shard total onto product {}", productId, e);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.turmericstore.service;
 
+import com.turmericstore.dto.PageResponse;
 import com.turmericstore.dto.UserDTO;
 import com.turmericstore.exception.BadRequestException;
 import com.turmericstore.exception.ResourceNotFoundException;
 import com.turmericstore.model.User;
 import com.turmericstore.repository.UserRepository;
+import com.turmericstore.util.AppConstants;
 import com.turmericstore.util.ModelMapperUtil;
+import com.turmericstore.util.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -38,6 +41,18 @@ public class UserService {
         }
     }
 
+    public PageResponse<UserDTO> getUsersPage(String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+        try {
+            List<User> slice = userRepository.findPage(PageCursor.decode(cursor), pageSize + 1);
+            return PageResponse.fromSlice(slice, pageSize,
+                    user -> new PageCursor(user.getCreatedAt(), user.getId()),
+                    modelMapper::toUserDTOs);
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to fetch users page", e);
+        }
+    }
+
     public UserDTO getUserById(String id) {
         try {
             User user = userRepository.findById(id)
@@ -102,6 +117,12 @@ public class UserService {
             user.setPassword(existingUser.getPassword()); // Keep the existing password
 
             User updatedUser = userRepository.save(user);
+            // Activation is counted, so it is written on its own and only when it changes
+            if (user.getActive() != null && !user.getActive().equals(existingUser.getActive())) {
+                userRepository.setActive(id, user.getActive());
+            } else {
+                updatedUser.setActive(existingUser.getActive());
+            }
             return modelMapper.toUserDTO(updatedUser);
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException("Failed to update user with id: " + id, e);
@@ -1,4 +1,119 @@
 package com.turmericstore.service.admin;
 
+import com.turmericstore.dto.DashboardStatsDTO;
+import com.turmericstore.model.Category;
+import com.turmericstore.model.Order;
+import com.turmericstore.repository.CategoryRepository;
+import com.turmericstore.repository.CounterRepository;
+import com.turmericstore.repository.OrderRepository;
+import com.turmericstore.repository.ProductRepository;
+import com.turmericstore.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+@Service
 public class AdminReportService {
+
+    private final CounterRepository counterRepository;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+
+    @Autowired
+    public AdminReportService(CounterRepository counterRepository,
+                              ProductRepository productRepository,
+                              CategoryRepository categoryRepository,
+                              OrderRepository orderRepository,
+                              UserRepository userRepository) {
+        this.counterRepository = counterRepository;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Dashboard counts straight from the counters documents, without touching the entity collections.
+     */
+    public DashboardStatsDTO getDashboardStats() {
+        try {
+            Map<String, Map<String, Object>> counters = counterRepository.findAll();
+            Map<String, Object> products = counters.get(CounterRepository.PRODUCTS);
+            Map<String, Object> orders = counters.get(CounterRepository.ORDERS);
+            Map<String, Object> users = counters.get(CounterRepository.USERS);
+
+            return DashboardStatsDTO.builder()
+                    .totalProducts(getLong(products, "total"))
+                    .productsByCategory(getCounts(products, "byCategory"))
+                    .totalOrders(getLong(orders, "total"))
+                    .ordersByStatus(getCounts(orders, "byStatus"))
+                    .totalUsers(getLong(users, "total"))
+                    .activeUsers(getLong(users, "active"))
+                    .build();
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to fetch dashboard stats", e);
+        }
+    }
+
+    /**
+     * Recomputes every counter with count() aggregation queries and overwrites the stored values.
+     * Meant for seeding existing data or repairing counters after writes made outside the app.
+     */
+    public DashboardStatsDTO rebuildCounters() {
+        try {
+            Map<String, Object> byCategory = new HashMap<>();
+            for (Category category : categoryRepository.findAll()) {
+                byCategory.put(category.getId(), productRepository.countByCategoryId(category.getId()));
+            }
+            Map<String, Object> products = new HashMap<>();
+            products.put("total", productRepository.count());
+            products.put("byCategory", byCategory);
+
+            Map<String, Object> byStatus = new HashMap<>();
+            for (Order.OrderStatus status : Order.OrderStatus.values()) {
+                byStatus.put(status.name(), orderRepository.countByStatus(status));
+            }
+            Map<String, Object> orders = new HashMap<>();
+            orders.put("total", orderRepository.count());
+            orders.put("byStatus", byStatus);
+
+            Map<String, Object> users = new HashMap<>();
+            users.put("total", userRepository.count());
+            users.put("active", userRepository.countActive());
+
+            Map<String, Map<String, Object>> counters = new HashMap<>();
+            counters.put(CounterRepository.PRODUCTS, products);
+            counters.put(CounterRepository.ORDERS, orders);
+            counters.put(CounterRepository.USERS, users);
+            counterRepository.replaceAll(counters);
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("Failed to rebuild counters", e);
+        }
+
+        return getDashboardStats();
+    }
+
+    // Helper methods
+    private static long getLong(Map<String, Object> counter, String field) {
+        return counter.get(field) instanceof Number value ? value.longValue() : 0L;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> getCounts(Map<String, Object> counter, String field) {
+        Map<String, Long> counts = new HashMap<>();
+        if (!(counter.get(field) instanceof Map)) {
+            return counts;
+        }
+        ((Map<String, Object>) counter.get(field)).forEach((key, value) -> {
+            if (value instanceof Number) {
+                counts.put(key, ((Number) value).longValue());
+            }
+        });
+        return counts;
+    }
 }
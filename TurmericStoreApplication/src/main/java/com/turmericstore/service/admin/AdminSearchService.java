@@ -0,0 +1,28 @@
+package com.turmericstore.service.admin;
+
+import com.turmericstore.catalog.CatalogVersion;
+import com.turmericstore.search.SynonymDictionary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+@Service
+public class AdminSearchService {
+
+    private final SynonymDictionary synonymDictionary;
+    private final CatalogVersion catalogVersion;
+
+    @Autowired
+    public AdminSearchService(SynonymDictionary synonymDictionary, CatalogVersion catalogVersion) {
+        this.synonymDictionary = synonymDictionary;
+        this.catalogVersion = catalogVersion;
+    }
+
+    public Map<String, Integer> reloadSynonyms() {
+        int groups = synonymDictionary.reload();
+        // Search results may differ now, so clients must not revalidate against the old ETag
+        catalogVersion.productsChanged();
+        return Map.of("groups", groups);
+    }
+}
@@ -8,12 +8,18 @@ public class AppConstants {
     public static final String COLLECTION_ORDERS = "orders";
     public static final String COLLECTION_CARTS = "carts";
     public static final String COLLECTION_PAYMENTS = "payments";
+    public static final String COLLECTION_COUNTERS = "counters";
+    public static final String COLLECTION_DELETIONS = "deletions";
+    public static final String COLLECTION_STOCK_HOLDS = "stockHolds";
+    public static final String COLLECTION_IDEMPOTENCY_KEYS = "idempotencyKeys";
+    public static final String COLLECTION_ORDER_NUMBERS = "orderNumbers";
 
     // Pagination defaults
     public static final String DEFAULT_PAGE_NUMBER = "0";
     public static final String DEFAULT_PAGE_SIZE = "10";
     public static final String DEFAULT_SORT_BY = "createdAt";
     public static final String DEFAULT_SORT_DIRECTION = "desc";
+    public static final int MAX_PAGE_SIZE = 100;
 
     // Tax and shipping constants
     public static final double TAX_RATE = 0.08; // 8%
@@ -0,0 +1,24 @@
+package com.turmericstore.util;
+
+/**
+ * Position in a stream of changes ordered by (timestamp, id). Without an id the cursor
+ * stands after every change at or before the timestamp.
+ */
+public final class ChangeCursor {
+
+    private final long timestamp;
+    private final String id;
+
+    public ChangeCursor(long timestamp, String id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,75 @@
+package com.turmericstore.util;
+
+import com.turmericstore.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A sparse fieldset requested through a {@code fields=} query parameter. Holds the response
+ * fields in request order and the document fields Firestore has to return to build them,
+ * which repositories pass to {@code Query.select}.
+ */
+public final class FieldProjection {
+
+    private final List<String> fields;
+    private final String[] documentFields;
+
+    private FieldProjection(List<String> fields, String[] documentFields) {
+        this.fields = fields;
+        this.documentFields = documentFields;
+    }
+
+    /**
+     * Parses a comma separated field list. Returns null when no fields are requested,
+     * meaning the full representation.
+     *
+     * @param allowed        response fields clients may ask for
+     * @param sources        document fields behind derived response fields; others map to themselves
+     * @param alwaysSelected document fields needed regardless of the request (e.g. the page cursor)
+     */
+    public static FieldProjection parse(String fields, Set<String> allowed, Map<String, List<String>> sources,
+                                        String... alwaysSelected) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(trimmed)) {
+                throw new BadRequestException("Unknown field: " + trimmed);
+            }
+            requested.add(trimmed);
+        }
+        if (requested.isEmpty()) {
+            return null;
+        }
+
+        Set<String> selected = new LinkedHashSet<>(Arrays.asList(alwaysSelected));
+        for (String field : requested) {
+            selected.addAll(sources.getOrDefault(field, List.of(field)));
+        }
+
+        return new FieldProjection(new ArrayList<>(requested), selected.toArray(new String[0]));
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public boolean includes(String field) {
+        return fields.contains(field);
+    }
+
+    public String[] getDocumentFields() {
+        return documentFields;
+    }
+}
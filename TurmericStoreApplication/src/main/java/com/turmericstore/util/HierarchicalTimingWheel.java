@@ -0,0 +1,215 @@
+package com.turmericstore.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for large numbers of timers that mostly get cancelled or
+ * rescheduled. The lowest wheel has one bucket per tick; each wheel above it has buckets one
+ * whole lower wheel wide, and is added when a deadline first falls beyond the wheels so far.
+ * Scheduling and cancelling are O(1). Each tick expires one bucket of the lowest wheel, and
+ * when a higher wheel's bucket comes up its timers move down to where they now fit.
+ * Timers fire on the first tick at or after their deadline, so up to one tick late.
+ * Time only moves through {@link #advance(long)}; the caller drives it from a clock.
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Wheel> wheels = new ArrayList<>();
+    private int size;
+
+    /**
+     * @param tickMillis  resolution of the lowest wheel
+     * @param wheelSize   buckets per wheel
+     * @param startMillis current time
+     */
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("Tick must be positive and a wheel needs at least two buckets");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        wheels.add(new Wheel(tickMillis, startMillis - Math.floorMod(startMillis, tickMillis)));
+    }
+
+    /**
+     * Schedules a task to be returned by {@link #advance(long)} once the deadline has passed.
+     * A deadline already in the past fires on the next tick.
+     */
+    public synchronized Timeout schedule(T task, long deadlineMillis) {
+        Timeout timeout = new Timeout(task, deadlineMillis);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves time forward to {@code nowMillis} and returns the tasks that came due, in tick order.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        Wheel lowest = wheels.get(0);
+        while (nowMillis >= lowest.currentTime + tickMillis) {
+            Bucket expired = lowest.bucketFor(lowest.currentTime);
+            lowest.currentTime += tickMillis;
+            for (Timeout timeout = expired.clear(); timeout != null; ) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                due.add(timeout.task);
+                size--;
+                timeout = next;
+            }
+            cascade();
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Handle to a scheduled task.
+     */
+    public final class Timeout {
+        private final T task;
+        private final long deadline;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(T task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Removes the timer unless it has already fired. Returns whether it was still pending.
+         */
+        public boolean cancel() {
+            synchronized (HierarchicalTimingWheel.this) {
+                if (bucket == null) {
+                    return false;
+                }
+                bucket.remove(this);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    // Helper methods (callers hold the wheel's lock)
+    private void place(Timeout timeout) {
+        Wheel lowest = wheels.get(0);
+        if (timeout.deadline < lowest.currentTime + tickMillis) {
+            // Due or overdue: the current bucket is the next one to expire
+            lowest.bucketFor(lowest.currentTime).add(timeout);
+            return;
+        }
+
+        for (int level = 0; ; level++) {
+            if (level == wheels.size()) {
+                Wheel below = wheels.get(level - 1);
+                long tick = below.tick * wheelSize;
+                wheels.add(new Wheel(tick, lowest.currentTime - Math.floorMod(lowest.currentTime, tick)));
+            }
+            Wheel wheel = wheels.get(level);
+            // The current bucket of a higher wheel is always covered by the wheels below it
+            if (timeout.deadline < wheel.currentTime + wheel.tick * wheelSize) {
+                wheel.bucketFor(timeout.deadline).add(timeout);
+                return;
+            }
+        }
+    }
+
+    // Brings the higher wheels up to the lowest wheel's time, moving the timers of each bucket they reach down
+    private void cascade() {
+        long now = wheels.get(0).currentTime;
+        List<Timeout> moved = new ArrayList<>();
+        for (int level = wheels.size() - 1; level > 0; level--) {
+            Wheel wheel = wheels.get(level);
+            long start = now - Math.floorMod(now, wheel.tick);
+            if (start == wheel.currentTime) {
+                continue;
+            }
+            wheel.currentTime = start;
+            for (Timeout timeout = wheel.bucketFor(start).clear(); timeout != null; ) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                moved.add(timeout);
+                timeout = next;
+            }
+        }
+        for (Timeout timeout : moved) {
+            place(timeout);
+        }
+    }
+
+    private final class Wheel {
+        private final long tick;
+        private final List<Bucket> buckets;
+        private long currentTime; // start of the bucket holding the current time
+
+        private Wheel(long tick, long currentTime) {
+            this.tick = tick;
+            this.currentTime = currentTime;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new Bucket());
+            }
+        }
+
+        private Bucket bucketFor(long time) {
+            return buckets.get((int) Math.floorMod(Math.floorDiv(time, tick), (long) wheelSize));
+        }
+    }
+
+    // Doubly linked so a timer leaves its bucket in constant time
+    private final class Bucket {
+        private Timeout head;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        // Detaches every timer and returns them as a list linked through next
+        private Timeout clear() {
+            Timeout first = head;
+            for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+                timeout.previous = null;
+            }
+            head = null;
+            return first;
+        }
+    }
+}
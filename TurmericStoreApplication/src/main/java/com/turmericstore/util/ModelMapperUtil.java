@@ -4,12 +4,79 @@ import com.turmericstore.dto.*;
 import com.turmericstore.model.*;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 public class ModelMapperUtil {
 
+    // Response fields available to sparse fieldsets, with how to read each from the DTO
+    private static final Map<String, Function<ProductDTO, Object>> PRODUCT_FIELDS = new LinkedHashMap<>();
+    private static final Map<String, Function<OrderDTO, Object>> ORDER_FIELDS = new LinkedHashMap<>();
+
+    // Document fields behind derived response fields; the ID comes from the document reference
+    private static final Map<String, List<String>> PRODUCT_FIELD_SOURCES = Map.of(
+            "id", List.of(),
+            "imageUrl", List.of("imageUrls"),
+            "categoryName", List.of("categoryId"),
+            "inStock", List.of("stock"),
+            "isDiscounted", List.of("price", "discountPrice"));
+    private static final Map<String, List<String>> ORDER_FIELD_SOURCES = Map.of(
+            "id", List.of(),
+            "itemCount", List.of("items"));
+
+    static {
+        PRODUCT_FIELDS.put("id", ProductDTO::getId);
+        PRODUCT_FIELDS.put("name", ProductDTO::getName);
+        PRODUCT_FIELDS.put("description", ProductDTO::getDescription);
+        PRODUCT_FIELDS.put("price", ProductDTO::getPrice);
+        PRODUCT_FIELDS.put("discountPrice", ProductDTO::getDiscountPrice);
+        PRODUCT_FIELDS.put("stock", ProductDTO::getStock);
+        PRODUCT_FIELDS.put("stockShards", ProductDTO::getStockShards);
+        PRODUCT_FIELDS.put("categoryId", ProductDTO::getCategoryId);
+        PRODUCT_FIELDS.put("categoryName", ProductDTO::getCategoryName);
+        PRODUCT_FIELDS.put("unit", ProductDTO::getUnit);
+        PRODUCT_FIELDS.put("imageUrls", ProductDTO::getImageUrls);
+        PRODUCT_FIELDS.put("imageUrl", dto -> dto.getImageUrls() == null || dto.getImageUrls().isEmpty()
+                ? null : dto.getImageUrls().get(0));
+        PRODUCT_FIELDS.put("attributes", ProductDTO::getAttributes);
+        PRODUCT_FIELDS.put("featured", ProductDTO::getFeatured);
+        PRODUCT_FIELDS.put("active", ProductDTO::getActive);
+        PRODUCT_FIELDS.put("createdAt", ProductDTO::getCreatedAt);
+        PRODUCT_FIELDS.put("updatedAt", ProductDTO::getUpdatedAt);
+        PRODUCT_FIELDS.put("tags", ProductDTO::getTags);
+        PRODUCT_FIELDS.put("weight", ProductDTO::getWeight);
+        PRODUCT_FIELDS.put("brand", ProductDTO::getBrand);
+        PRODUCT_FIELDS.put("country", ProductDTO::getCountry);
+        PRODUCT_FIELDS.put("inStock", ProductDTO::getInStock);
+        PRODUCT_FIELDS.put("isDiscounted", ProductDTO::getIsDiscounted);
+
+        ORDER_FIELDS.put("id", OrderDTO::getId);
+        ORDER_FIELDS.put("userId", OrderDTO::getUserId);
+        ORDER_FIELDS.put("orderNumber", OrderDTO::getOrderNumber);
+        ORDER_FIELDS.put("items", OrderDTO::getItems);
+        ORDER_FIELDS.put("itemCount", OrderDTO::getItemCount);
+        ORDER_FIELDS.put("status", OrderDTO::getStatus);
+        ORDER_FIELDS.put("subtotal", OrderDTO::getSubtotal);
+        ORDER_FIELDS.put("tax", OrderDTO::getTax);
+        ORDER_FIELDS.put("shippingCost", OrderDTO::getShippingCost);
+        ORDER_FIELDS.put("discount", OrderDTO::getDiscount);
+        ORDER_FIELDS.put("total", OrderDTO::getTotal);
+        ORDER_FIELDS.put("shippingAddress", OrderDTO::getShippingAddress);
+        ORDER_FIELDS.put("billingAddress", OrderDTO::getBillingAddress);
+        ORDER_FIELDS.put("paymentId", OrderDTO::getPaymentId);
+        ORDER_FIELDS.put("paymentStatus", OrderDTO::getPaymentStatus);
+        ORDER_FIELDS.put("paymentMethod", OrderDTO::getPaymentMethod);
+        ORDER_FIELDS.put("trackingNumber", OrderDTO::getTrackingNumber);
+        ORDER_FIELDS.put("notes", OrderDTO::getNotes);
+        ORDER_FIELDS.put("createdAt", OrderDTO::getCreatedAt);
+        ORDER_FIELDS.put("updatedAt", OrderDTO::getUpdatedAt);
+    }
+
     // Product mapping
     public ProductDTO toProductDTO(Product product) {
         if (product == null) {
@@ -23,6 +90,7 @@ public class ModelMapperUtil {
                 .price(product.getPrice())
                 .discountPrice(product.getDiscountPrice())
                 .stock(product.getStock())
+                .stockShards(product.getStockShards())
                 .categoryId(product.getCategoryId())
                 .unit(product.getUnit())
                 .imageUrls(product.getImageUrls())
@@ -372,4 +440,31 @@ public class ModelMapperUtil {
                 .collect(Collectors.toList());
     }
 
-}
\ No newline at end of file
+    // Field projections (sparse fieldsets)
+    public FieldProjection productProjection(String fields, String... alwaysSelected) {
+        return FieldProjection.parse(fields, Collections.unmodifiableSet(PRODUCT_FIELDS.keySet()),
+                PRODUCT_FIELD_SOURCES, alwaysSelected);
+    }
+
+    public Map<String, Object> toProductFields(ProductDTO productDTO, FieldProjection projection) {
+        return project(productDTO, projection, PRODUCT_FIELDS);
+    }
+
+    public FieldProjection orderProjection(String fields, String... alwaysSelected) {
+        return FieldProjection.parse(fields, Collections.unmodifiableSet(ORDER_FIELDS.keySet()),
+                ORDER_FIELD_SOURCES, alwaysSelected);
+    }
+
+    public Map<String, Object> toOrderFields(OrderDTO orderDTO, FieldProjection projection) {
+        return project(orderDTO, projection, ORDER_FIELDS);
+    }
+
+    private static <T> Map<String, Object> project(T dto, FieldProjection projection,
+                                                   Map<String, Function<T, Object>> accessors) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : projection.getFields()) {
+            values.put(field, accessors.get(field).apply(dto));
+        }
+        return values;
+    }
+}
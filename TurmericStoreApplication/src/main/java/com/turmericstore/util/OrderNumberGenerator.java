@@ -0,0 +1,118 @@
+package com.turmericstore.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style order numbers: seconds since 2025 (31 bits), the instance id (10 bits) and a
+ * per-second sequence (14 bits), written as 11 Crockford base32 characters after "ORD-".
+ * The encoding is fixed width and its alphabet is in ASCII order, so numbers sort by the time
+ * they were issued, and it leaves out I, L, O and U so they read back unambiguously.
+ * The clock and sequence share one AtomicLong advanced by CAS, so issuing is lock-free. It
+ * never goes back if the system clock does, and never runs ahead of it: when a second runs
+ * out of sequence numbers, the next number waits for the clock to reach the next second.
+ * A fresh generator treats the second it was created in as used up, so every number a run
+ * issues is from a second its clock had reached and the next run's clock has passed, and an
+ * instance restarted within a second cannot reissue a number from the one before.
+ */
+@Component
+public class OrderNumberGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNumberGenerator.class);
+
+    public static final String PREFIX = "ORD-";
+
+    private static final long EPOCH_SECONDS = Instant.parse("2025-01-01T00:00:00Z").getEpochSecond();
+    private static final int INSTANCE_BITS = 10;
+    private static final int SEQUENCE_BITS = 14;
+    private static final int TOTAL_BITS = 31 + INSTANCE_BITS + SEQUENCE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_INSTANCE_ID = (1 << INSTANCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = (TOTAL_BITS + 4) / 5;
+
+    private final long instanceId;
+    private final LongSupplier clock;
+    // Seconds since the epoch shifted left by SEQUENCE_BITS, plus the last sequence issued in that second
+    private final AtomicLong lastIssued = new AtomicLong();
+
+    /**
+     * @param instanceId unique per running instance; set it when running more than one. Left
+     *                   unset, it is derived from the host name, and the rare clash that allows
+     *                   is caught when the number's mapping document is created
+     */
+    @Autowired
+    public OrderNumberGenerator(@Value("${app.orders.instance-id:#{null}}") Integer instanceId) {
+        this(instanceId != null ? instanceId : hostInstanceId(), System::currentTimeMillis);
+        if (instanceId == null) {
+            logger.warn("app.orders.instance-id is not set; issuing order numbers as instance {}, derived from the host name. "
+                    + "Set a distinct id per instance when running more than one", this.instanceId);
+        } else {
+            logger.info("Issuing order numbers as instance {}", this.instanceId);
+        }
+    }
+
+    OrderNumberGenerator(int instanceId, LongSupplier clock) {
+        if (instanceId < 0 || instanceId > MAX_INSTANCE_ID) {
+            throw new IllegalArgumentException("Instance id must be between 0 and " + MAX_INSTANCE_ID);
+        }
+        this.instanceId = instanceId;
+        this.clock = clock;
+        // As if the last sequence number of the current second were already taken
+        lastIssued.set(((currentSecond() + 1) << SEQUENCE_BITS) - 1);
+    }
+
+    public String next() {
+        long issued;
+        while (true) {
+            long previous = lastIssued.get();
+            long now = currentSecond() << SEQUENCE_BITS;
+            issued = now > previous ? now : previous + 1;
+            if (issued > now && (issued & SEQUENCE_MASK) == 0) {
+                // The sequence carried into a second the clock has not reached yet
+                Thread.onSpinWait();
+                continue;
+            }
+            if (lastIssued.compareAndSet(previous, issued)) {
+                break;
+            }
+        }
+
+        long seconds = issued >>> SEQUENCE_BITS;
+        long sequence = issued & SEQUENCE_MASK;
+        return PREFIX + encode((seconds << (INSTANCE_BITS + SEQUENCE_BITS)) | (instanceId << SEQUENCE_BITS) | sequence);
+    }
+
+    // Helper methods
+    private long currentSecond() {
+        return clock.getAsLong() / 1000 - EPOCH_SECONDS;
+    }
+
+    private static int hostInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = System.getenv().getOrDefault("HOSTNAME", "");
+        }
+        return Math.floorMod(host.hashCode(), MAX_INSTANCE_ID + 1);
+    }
+
+    private static String encode(long value) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,54 @@
+package com.turmericstore.util;
+
+import com.turmericstore.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last document on a page, ordered by (createdAt, id).
+ * Clients only ever see the opaque encoded form.
+ */
+public final class PageCursor {
+
+    private final long createdAt;
+    private final String id;
+
+    public PageCursor(long createdAt, String id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = createdAt + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a client-supplied cursor; a missing cursor means "first page".
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new BadRequestException("Invalid page cursor");
+            }
+            return new PageCursor(Long.parseLong(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid page cursor");
+        }
+    }
+}
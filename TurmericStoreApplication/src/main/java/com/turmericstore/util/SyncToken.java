@@ -0,0 +1,86 @@
+package com.turmericstore.util;
+
+import com.turmericstore.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Where a client's catalog sync stands: one {@link ChangeCursor} each for product changes,
+ * category changes and deletions. Clients only ever see the opaque encoded form.
+ */
+public final class SyncToken {
+
+    private final ChangeCursor products;
+    private final ChangeCursor categories;
+    private final ChangeCursor deletions;
+
+    public SyncToken(ChangeCursor products, ChangeCursor categories, ChangeCursor deletions) {
+        this.products = products;
+        this.categories = categories;
+        this.deletions = deletions;
+    }
+
+    /**
+     * A token standing after every change up to the timestamp.
+     */
+    public static SyncToken at(long timestamp) {
+        return new SyncToken(new ChangeCursor(timestamp, null), new ChangeCursor(timestamp, null),
+                new ChangeCursor(timestamp, null));
+    }
+
+    public ChangeCursor getProducts() {
+        return products;
+    }
+
+    public ChangeCursor getCategories() {
+        return categories;
+    }
+
+    public ChangeCursor getDeletions() {
+        return deletions;
+    }
+
+    public long oldestTimestamp() {
+        return Math.min(products.getTimestamp(), Math.min(categories.getTimestamp(), deletions.getTimestamp()));
+    }
+
+    public String encode() {
+        String raw = encode(products) + "\n" + encode(categories) + "\n" + encode(deletions);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a client-supplied token; a missing token means the client has no catalog yet.
+     */
+    public static SyncToken decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", -1);
+            if (parts.length != 3) {
+                throw new BadRequestException("Invalid sync token");
+            }
+            return new SyncToken(decodeCursor(parts[0]), decodeCursor(parts[1]), decodeCursor(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid sync token");
+        }
+    }
+
+    // Helper methods
+    private static String encode(ChangeCursor cursor) {
+        return cursor.getTimestamp() + ":" + (cursor.getId() != null ? cursor.getId() : "");
+    }
+
+    private static ChangeCursor decodeCursor(String raw) {
+        int separator = raw.indexOf(':');
+        if (separator <= 0) {
+            throw new BadRequestException("Invalid sync token");
+        }
+        String id = raw.substring(separator + 1);
+        return new ChangeCursor(Long.parseLong(raw.substring(0, separator)), id.isEmpty() ? null : id);
+    }
+}
@@ -0,0 +1,157 @@
+package com.turmericstore.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactBitmapTests {
+
+    @Test
+    void emptyBitmapContainsNothing() {
+        CompactBitmap empty = CompactBitmap.of(new int[0], 0);
+
+        assertThat(empty.cardinality()).isZero();
+        assertThat(empty.contains(0)).isFalse();
+        assertThat(empty.and(bitmap(1, 2, 3)).cardinality()).isZero();
+        assertThat(empty.or(bitmap(1, 2, 3)).cardinality()).isEqualTo(3);
+    }
+
+    @Test
+    void smallChunkIsAnArrayAndLargeChunkIsABitmap() {
+        CompactBitmap sparse = bitmap(range(0, 4096, 1));
+        CompactBitmap dense = bitmap(range(0, 4097, 1));
+
+        assertThat(containerTypes(sparse)).containsExactly(char[].class);
+        assertThat(containerTypes(dense)).containsExactly(long[].class);
+        assertThat(sparse.cardinality()).isEqualTo(4096);
+        assertThat(dense.cardinality()).isEqualTo(4097);
+        assertThat(dense.contains(4096)).isTrue();
+        assertThat(dense.contains(4097)).isFalse();
+    }
+
+    @Test
+    void valuesAreSplitIntoChunksByHighBits() {
+        CompactBitmap bitmap = bitmap(5, 65_535, 65_536, 200_000);
+
+        assertThat(containerTypes(bitmap)).hasSize(3);
+        assertThat(bitmap.contains(65_535)).isTrue();
+        assertThat(bitmap.contains(65_536)).isTrue();
+        assertThat(bitmap.contains(131_072 + 5)).isFalse();
+        assertThat(bitmap.contains(200_000)).isTrue();
+    }
+
+    @Test
+    void intersectionOfBitmapChunksShrinksBackToAnArray() {
+        CompactBitmap evens = bitmap(range(0, 20_000, 2));
+        CompactBitmap multiplesOfThree = bitmap(range(0, 20_000, 3));
+        assertThat(containerTypes(evens)).containsExactly(long[].class);
+
+        CompactBitmap both = evens.and(multiplesOfThree);
+
+        assertThat(containerTypes(both)).containsExactly(char[].class);
+        assertThat(both.cardinality()).isEqualTo(3334);
+        assertThat(both.contains(6)).isTrue();
+        assertThat(both.contains(4)).isFalse();
+        assertThat(evens.andCardinality(multiplesOfThree)).isEqualTo(3334);
+    }
+
+    @Test
+    void unionOfArrayChunksGrowsIntoABitmap() {
+        CompactBitmap low = bitmap(range(0, 3000, 1));
+        CompactBitmap high = bitmap(range(3000, 6000, 1));
+
+        CompactBitmap union = low.or(high);
+
+        assertThat(containerTypes(union)).containsExactly(long[].class);
+        assertThat(union.cardinality()).isEqualTo(6000);
+        assertThat(union.contains(5999)).isTrue();
+    }
+
+    @Test
+    void fromWordsMatchesTheBitset() {
+        long[] words = new long[3000];
+        words[0] = 0b1011;
+        words[2000] = -1L;
+
+        CompactBitmap bitmap = CompactBitmap.fromWords(words);
+
+        assertThat(bitmap.cardinality()).isEqualTo(3 + 64);
+        assertThat(bitmap.contains(0)).isTrue();
+        assertThat(bitmap.contains(2)).isFalse();
+        assertThat(bitmap.contains(2000 * 64 + 63)).isTrue();
+    }
+
+    @Test
+    void randomOperationsMatchBitSet() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            BitSet left = randomSet(random);
+            BitSet right = randomSet(random);
+            CompactBitmap a = bitmap(left.stream().toArray());
+            CompactBitmap b = bitmap(right.stream().toArray());
+
+            BitSet and = (BitSet) left.clone();
+            and.and(right);
+            BitSet or = (BitSet) left.clone();
+            or.or(right);
+
+            assertMatches(a.and(b), and);
+            assertMatches(a.or(b), or);
+            assertThat(a.andCardinality(b)).isEqualTo(and.cardinality());
+            assertMatches(CompactBitmap.fromWords(left.toLongArray()), left);
+        }
+    }
+
+    // Helper methods
+    private static CompactBitmap bitmap(int... values) {
+        return CompactBitmap.of(values, values.length);
+    }
+
+    private static int[] range(int from, int to, int step) {
+        int[] values = new int[(to - from + step - 1) / step];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i * step;
+        }
+        return values;
+    }
+
+    // Mixes dense and sparse chunks across several high keys
+    private static BitSet randomSet(Random random) {
+        BitSet set = new BitSet();
+        for (int chunk = 0; chunk < 4; chunk++) {
+            int base = chunk << 16;
+            int count = random.nextBoolean() ? random.nextInt(100) : 4000 + random.nextInt(20_000);
+            for (int i = 0; i < count; i++) {
+                set.set(base + random.nextInt(1 << 16));
+            }
+        }
+        return set;
+    }
+
+    private static void assertMatches(CompactBitmap bitmap, BitSet expected) {
+        assertThat(bitmap.cardinality()).isEqualTo(expected.cardinality());
+        for (int value = 0; value < 4 << 16; value += 7) {
+            assertThat(bitmap.contains(value)).as("contains %d", value).isEqualTo(expected.get(value));
+        }
+        expected.stream().forEach(value -> assertThat(bitmap.contains(value)).isTrue());
+    }
+
+    private static Class<?>[] containerTypes(CompactBitmap bitmap) {
+        try {
+            Field field = CompactBitmap.class.getDeclaredField("containers");
+            field.setAccessible(true);
+            Object[] containers = (Object[]) field.get(bitmap);
+            Class<?>[] types = new Class<?>[containers.length];
+            for (int i = 0; i < containers.length; i++) {
+                types[i] = containers[i].getClass();
+            }
+            return types;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.turmericstore.catalog;
+
+import com.turmericstore.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacetIndexTests {
+
+    // Positions 0-4
+    private final Product[] products = {
+            product("Acme", "IN", List.of("organic", "spice"), Map.of("size", "100g"), true),
+            product("Acme", "LK", List.of("spice"), Map.of("size", "500g"), false),
+            product("Zest", "IN", List.of("organic", "organic"), Map.of("size", "100g"), false),
+            product("Zest", "US", List.of(), null, false),
+            product(null, "IN", null, Map.of("size", "1kg"), true),
+    };
+    private final FacetIndex index = new FacetIndex(products);
+
+    @Test
+    void recognizesFacetNames() {
+        assertThat(FacetIndex.isFacet("brand")).isTrue();
+        assertThat(FacetIndex.isFacet("attributes.size")).isTrue();
+        assertThat(FacetIndex.isFacet("attributes.")).isFalse();
+        assertThat(FacetIndex.isFacet("price")).isFalse();
+    }
+
+    @Test
+    void noSelectionMatchesEverything() {
+        assertThat(index.match(null, null)).isNull();
+    }
+
+    @Test
+    void valuesOfOneFacetAreAlternatives() {
+        CompactBitmap match = index.match(Map.of("country", Set.of("IN", "LK")), null);
+
+        assertThat(positions(match)).containsExactly(0, 1, 2, 4);
+    }
+
+    @Test
+    void differentFacetsMustAllMatch() {
+        CompactBitmap match = index.match(Map.of(
+                "brand", Set.of("Acme", "Zest"),
+                "tag", Set.of("organic"),
+                "attributes.size", Set.of("100g")), null);
+
+        assertThat(positions(match)).containsExactly(0, 2);
+    }
+
+    @Test
+    void unknownValueMatchesNothing() {
+        assertThat(index.match(Map.of("brand", Set.of("Nope")), null).cardinality()).isZero();
+        assertThat(index.match(Map.of("attributes.color", Set.of("red")), null).cardinality()).isZero();
+    }
+
+    @Test
+    void countsEveryValueWithoutSelections() {
+        Map<String, Map<String, Integer>> counts = index.count(null, null);
+
+        assertThat(counts.get("brand")).containsExactly(Map.entry("Acme", 2), Map.entry("Zest", 2));
+        assertThat(counts.get("country")).containsExactly(Map.entry("IN", 3), Map.entry("LK", 1), Map.entry("US", 1));
+        // A tag listed twice on one product counts once
+        assertThat(counts.get("tag")).containsExactly(Map.entry("organic", 2), Map.entry("spice", 2));
+        assertThat(counts.get("featured")).containsExactly(Map.entry("false", 3), Map.entry("true", 2));
+        assertThat(counts).doesNotContainKey("unit");
+    }
+
+    @Test
+    void facetCountsIgnoreTheirOwnSelection() {
+        Map<String, Set<String>> selections = Map.of("brand", Set.of("Acme"), "country", Set.of("IN"));
+
+        Map<String, Map<String, Integer>> counts = index.count(null, selections);
+
+        // Brands are counted over country=IN only, so Zest stays visible as an alternative
+        assertThat(counts.get("brand")).containsExactly(Map.entry("Acme", 1), Map.entry("Zest", 1));
+        // Countries are counted over brand=Acme only
+        assertThat(counts.get("country")).containsExactly(Map.entry("IN", 1), Map.entry("LK", 1));
+        // Other facets are counted over both selections
+        assertThat(counts.get("tag")).containsExactly(Map.entry("organic", 1), Map.entry("spice", 1));
+    }
+
+    @Test
+    void countsAreLimitedToTheBase() {
+        CompactBitmap base = CompactBitmap.of(new int[]{1, 3}, 2);
+
+        Map<String, Map<String, Integer>> counts = index.count(base, null);
+
+        assertThat(counts.get("brand")).containsExactly(Map.entry("Acme", 1), Map.entry("Zest", 1));
+        assertThat(counts.get("country")).containsExactly(Map.entry("LK", 1), Map.entry("US", 1));
+        assertThat(counts.get("attributes.size")).containsExactly(Map.entry("500g", 1));
+        // Values with no products in the base are left out
+        assertThat(counts.get("tag")).containsExactly(Map.entry("spice", 1));
+    }
+
+    // Helper methods
+    private static Product product(String brand, String country, List<String> tags,
+                                   Map<String, String> attributes, boolean featured) {
+        return Product.builder()
+                .brand(brand)
+                .country(country)
+                .tags(tags)
+                .attributes(attributes)
+                .featured(featured)
+                .build();
+    }
+
+    private List<Integer> positions(CompactBitmap bitmap) {
+        return IntStream.range(0, products.length)
+                .filter(bitmap::contains)
+                .boxed()
+                .toList();
+    }
+}
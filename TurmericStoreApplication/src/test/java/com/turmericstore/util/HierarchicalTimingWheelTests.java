@@ -0,0 +1,145 @@
+package com.turmericstore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HierarchicalTimingWheelTests {
+
+    private static final long TICK = 10;
+    private static final int WHEEL_SIZE = 4;
+    private static final long START = 1_000;
+
+    private final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, WHEEL_SIZE, START);
+
+    @Test
+    void firesOnFirstTickAtOrAfterDeadline() {
+        wheel.schedule("a", START + 25);
+
+        assertThat(wheel.advance(START + 20)).isEmpty();
+        assertThat(wheel.advance(START + 29)).isEmpty();
+        assertThat(wheel.advance(START + 30)).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlineInThePastFiresOnNextTick() {
+        wheel.advance(START + 100);
+        wheel.schedule("overdue", START);
+        wheel.schedule("now", START + 100);
+
+        assertThat(wheel.advance(START + 109)).isEmpty();
+        assertThat(wheel.advance(START + 110)).containsExactlyInAnyOrder("overdue", "now");
+    }
+
+    @Test
+    void cascadesDownThroughSeveralWheels() {
+        // Beyond one lowest wheel (40ms) and one second wheel (160ms), so it starts on the third
+        long deadline = START + 500;
+        wheel.schedule("far", deadline);
+        wheel.schedule("near", START + 15);
+
+        List<String> fired = new ArrayList<>();
+        long firedAt = -1;
+        for (long now = START; now <= deadline + TICK; now += TICK) {
+            List<String> due = wheel.advance(now);
+            if (due.contains("far")) {
+                firedAt = now;
+            }
+            fired.addAll(due);
+        }
+
+        assertThat(fired).containsExactly("near", "far");
+        assertThat(firedAt).isBetween(deadline, deadline + TICK);
+    }
+
+    @Test
+    void largeJumpFiresEverythingDueInDeadlineOrder() {
+        wheel.schedule("c", START + 5_000);
+        wheel.schedule("a", START + 35);
+        wheel.schedule("b", START + 700);
+        wheel.schedule("later", START + 20_000);
+
+        assertThat(wheel.advance(START + 10_000)).containsExactly("a", "b", "c");
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(START + 20_010)).containsExactly("later");
+    }
+
+    @Test
+    void cancelledTimerNeverFires() {
+        HierarchicalTimingWheel<String>.Timeout near = wheel.schedule("near", START + 20);
+        HierarchicalTimingWheel<String>.Timeout far = wheel.schedule("far", START + 900);
+
+        assertThat(near.cancel()).isTrue();
+        assertThat(far.cancel()).isTrue();
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(START + 2_000)).isEmpty();
+    }
+
+    @Test
+    void cancelAfterFireReportsNotPending() {
+        HierarchicalTimingWheel<String>.Timeout timeout = wheel.schedule("a", START + 10);
+        assertThat(wheel.advance(START + 20)).containsExactly("a");
+
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelAfterCascadeStillRemovesTimer() {
+        HierarchicalTimingWheel<String>.Timeout timeout = wheel.schedule("far", START + 300);
+        // Far enough along that the timer has moved down to a lower wheel
+        wheel.advance(START + 250);
+
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(wheel.advance(START + 1_000)).isEmpty();
+    }
+
+    @Test
+    void randomSchedulesFireExactlyWhenDue() {
+        Random random = new Random(42);
+        HierarchicalTimingWheel<Long> timers = new HierarchicalTimingWheel<>(TICK, WHEEL_SIZE, START);
+        Map<Long, Integer> pending = new HashMap<>();
+        long now = START;
+
+        for (int round = 0; round < 500; round++) {
+            for (int i = 0; i < 5; i++) {
+                long deadline = now + random.nextInt(3_000) - 50;
+                HierarchicalTimingWheel<Long>.Timeout timeout = timers.schedule(deadline, deadline);
+                if (random.nextInt(4) == 0) {
+                    assertThat(timeout.cancel()).isTrue();
+                } else {
+                    pending.merge(deadline, 1, Integer::sum);
+                }
+            }
+
+            // Mostly single ticks, sometimes a jump across several wheels
+            now += random.nextInt(10) == 0 ? random.nextInt(2_000) : TICK;
+            long tickStart = now - Math.floorMod(now, TICK);
+            for (long deadline : timers.advance(now)) {
+                assertThat(deadline).isLessThan(tickStart);
+                pending.merge(deadline, -1, Integer::sum);
+                pending.remove(deadline, 0);
+            }
+            // Everything due before the current tick has fired, and nothing else
+            assertThat(pending.keySet()).allSatisfy(deadline -> assertThat(deadline).isGreaterThanOrEqualTo(tickStart));
+            assertThat(timers.size()).isEqualTo(pending.values().stream().mapToInt(Integer::intValue).sum());
+        }
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThatThrownBy(() -> new HierarchicalTimingWheel<String>(0, 4, START))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HierarchicalTimingWheel<String>(10, 1, START))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
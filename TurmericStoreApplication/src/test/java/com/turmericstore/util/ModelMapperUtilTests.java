@@ -0,0 +1,39 @@
+package com.turmericstore.util;
+
+import com.turmericstore.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelMapperUtilTests {
+
+    private final ModelMapperUtil modelMapper = new ModelMapperUtil();
+
+    @Test
+    void projectsDiscountPriceLoadedWithoutPrice() {
+        FieldProjection projection = modelMapper.productProjection("discountPrice");
+        assertThat(projection.getDocumentFields()).containsExactly("discountPrice");
+
+        // What Firestore returns for select("discountPrice")
+        Product product = Product.builder().id("p1").discountPrice(4.5).build();
+
+        Map<String, Object> fields = modelMapper.toProductFields(modelMapper.toProductDTO(product), projection);
+        assertThat(fields).containsExactly(Map.entry("discountPrice", 4.5));
+    }
+
+    @Test
+    void isDiscountedNeedsBothPrices() {
+        assertThat(Product.builder().discountPrice(4.5).build().isDiscounted()).isFalse();
+        assertThat(Product.builder().price(5.0).build().isDiscounted()).isFalse();
+        assertThat(Product.builder().price(5.0).discountPrice(4.5).build().isDiscounted()).isTrue();
+        assertThat(Product.builder().price(5.0).discountPrice(5.0).build().isDiscounted()).isFalse();
+    }
+
+    @Test
+    void projectsIsDiscountedFromBothPriceFields() {
+        FieldProjection projection = modelMapper.productProjection("isDiscounted");
+        assertThat(projection.getDocumentFields()).containsExactlyInAnyOrder("price", "discountPrice");
+    }
+}
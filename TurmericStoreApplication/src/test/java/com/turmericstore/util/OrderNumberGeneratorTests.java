@@ -0,0 +1,126 @@
+package com.turmericstore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderNumberGeneratorTests {
+
+    private static final long NOW = Instant.parse("2026-03-01T12:00:00.250Z").toEpochMilli();
+
+    private final AtomicLong time = new AtomicLong(NOW);
+    // Moves on a millisecond per read, so a generator waiting for the next second gets there
+    private final LongSupplier clock = () -> time.getAndIncrement();
+
+    @Test
+    void numbersHaveAFixedWidthAndIncrease() {
+        OrderNumberGenerator generator = new OrderNumberGenerator(7, clock);
+
+        List<String> numbers = issue(generator, 100);
+
+        assertThat(numbers).allSatisfy(number -> assertThat(number).matches("ORD-[0-9A-HJKMNP-TV-Z]{11}"));
+        assertThat(numbers).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void restartWithinTheSameSecondDoesNotReissueNumbers() {
+        OrderNumberGenerator first = new OrderNumberGenerator(7, clock);
+        List<String> before = issue(first, 100);
+
+        // Still within the second the last number was issued in
+        OrderNumberGenerator restarted = new OrderNumberGenerator(7, clock);
+        List<String> after = issue(restarted, 100);
+
+        assertThat(after.get(0)).isGreaterThan(before.get(before.size() - 1));
+        assertThat(after).doesNotContainAnyElementsOf(before);
+    }
+
+    @Test
+    void clockSteppingBackwardsDoesNotReissueNumbers() {
+        OrderNumberGenerator generator = new OrderNumberGenerator(7, clock);
+        List<String> numbers = new ArrayList<>(issue(generator, 10));
+
+        time.addAndGet(3000);
+        numbers.addAll(issue(generator, 10));
+        time.addAndGet(-60_000);
+        numbers.addAll(issue(generator, 10));
+        time.addAndGet(120_000);
+        numbers.addAll(issue(generator, 10));
+
+        assertThat(numbers).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void exhaustedSecondWaitsForTheClock() {
+        AtomicLong frozen = new AtomicLong(NOW);
+        OrderNumberGenerator generator = new OrderNumberGenerator(7, frozen::get);
+        frozen.addAndGet(1000);
+
+        // 2^14 sequence numbers per second
+        List<String> numbers = issue(generator, 1 << 14);
+        CompletableFuture<String> next = CompletableFuture.supplyAsync(generator::next);
+
+        assertThatThrownBy(() -> next.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        frozen.addAndGet(1000);
+        assertThat(next.join()).isGreaterThan(numbers.get(numbers.size() - 1));
+        assertThat(numbers).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void instancesIssueDistinctNumbers() {
+        OrderNumberGenerator one = new OrderNumberGenerator(1, clock);
+        OrderNumberGenerator two = new OrderNumberGenerator(2, clock);
+
+        Set<String> numbers = new HashSet<>(issue(one, 500));
+        numbers.addAll(issue(two, 500));
+
+        assertThat(numbers).hasSize(1000);
+    }
+
+    @Test
+    void derivesAnInstanceIdWhenUnset() {
+        OrderNumberGenerator generator = new OrderNumberGenerator(null);
+
+        assertThat(generator.next()).startsWith(OrderNumberGenerator.PREFIX);
+    }
+
+    @Test
+    void firstNumberWaitsOutTheStartSecond() {
+        AtomicLong frozen = new AtomicLong(NOW);
+        OrderNumberGenerator generator = new OrderNumberGenerator(7, frozen::get);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(generator::next);
+
+        assertThatThrownBy(() -> first.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        frozen.addAndGet(1000);
+        assertThat(first.join()).startsWith(OrderNumberGenerator.PREFIX);
+    }
+
+    @Test
+    void rejectsOutOfRangeInstanceIds() {
+        assertThatThrownBy(() -> new OrderNumberGenerator(-1, clock))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OrderNumberGenerator(1024))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Helper methods
+    private static List<String> issue(OrderNumberGenerator generator, int count) {
+        List<String> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(generator.next());
+        }
+        return numbers;
+    }
+}